@@ -0,0 +1,125 @@
+package gov.cdc.foundation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+
+/**
+ * Generates the files used by the benchmarks, with a fixed number of cells per shape so that the shapes can be compared.
+ */
+public final class SyntheticFiles {
+
+	// Number of distinct values of the shared-string-heavy workbooks
+	private static final int DISTINCT_STRINGS = 1000;
+
+	private SyntheticFiles() {
+		throw new IllegalAccessError("Helper class");
+	}
+
+	/**
+	 * Number of columns of each shape: `tall` and `wide` hold numbers, `dates` date-formatted numbers,
+	 * `formulas` formulas without cached values and `strings` repeated shared strings.
+	 */
+	public static int columns(String shape) {
+		return "wide".equals(shape) ? 500 : 10;
+	}
+
+	public static int rows(String shape, int cells) {
+		return Math.max(1, cells / columns(shape));
+	}
+
+	/**
+	 * The range covering all the cells of the workbook.
+	 */
+	public static String range(String shape, int cells) {
+		return "A1:" + CellReference.convertNumToColString(columns(shape) - 1) + rows(shape, cells);
+	}
+
+	public static File xlsx(String shape, int cells) throws IOException {
+		int cols = columns(shape);
+		int rows = rows(shape, cells);
+		boolean sharedStrings = "strings".equals(shape);
+
+		File file = File.createTempFile("benchmark-" + shape + "-", ".xlsx");
+		file.deleteOnExit();
+		SXSSFWorkbook wb = new SXSSFWorkbook(new XSSFWorkbook(), 100, false, sharedStrings);
+		try (OutputStream os = new FileOutputStream(file)) {
+			CellStyle dateStyle = wb.createCellStyle();
+			dateStyle.setDataFormat(wb.createDataFormat().getFormat("yyyy-mm-dd hh:mm"));
+
+			Sheet sheet = wb.createSheet("Sheet1");
+			for (int r = 0; r < rows; r++) {
+				Row row = sheet.createRow(r);
+				for (int c = 0; c < cols; c++)
+					if ("dates".equals(shape)) {
+						row.createCell(c).setCellValue(40000 + r + c / 24.0);
+						row.getCell(c).setCellStyle(dateStyle);
+					} else if ("formulas".equals(shape))
+						row.createCell(c).setCellFormula(c == 0 ? (r + 1) + "*2" : CellReference.convertNumToColString(c - 1) + (r + 1) + "+1");
+					else if (sharedStrings)
+						row.createCell(c).setCellValue("value " + ((r * cols + c) % DISTINCT_STRINGS));
+					else
+						row.createCell(c).setCellValue(r * 0.5 + c);
+			}
+			wb.write(os);
+		} finally {
+			wb.dispose();
+			wb.close();
+		}
+		return file;
+	}
+
+	public static byte[] csv(int rows, int cols) {
+		StringBuilder sb = new StringBuilder();
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				if (c > 0)
+					sb.append(',');
+				if (c % 2 == 0)
+					sb.append(r * 0.5 + c);
+				else
+					sb.append("\"value ").append(r).append(", ").append(c).append('"');
+			}
+			sb.append("\r\n");
+		}
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * A document with headings, paragraphs and one 5x5 table every 20 paragraphs.
+	 */
+	public static byte[] docx(int paragraphs) throws IOException {
+		try (XWPFDocument doc = new XWPFDocument()) {
+			for (int i = 0; i < paragraphs; i++) {
+				XWPFParagraph p = doc.createParagraph();
+				if (i % 20 == 0) {
+					p.setStyle("Heading1");
+					p.createRun().setText("Section " + (i / 20));
+
+					XWPFTable table = doc.createTable(5, 5);
+					for (int r = 0; r < 5; r++)
+						for (int c = 0; c < 5; c++)
+							table.getRow(r).getCell(c).setText("cell " + r + "," + c);
+				} else
+					p.createRun().setText("Paragraph " + i + " with some text to extract from the document body.");
+			}
+			ByteArrayOutputStream os = new ByteArrayOutputStream();
+			doc.write(os);
+			return os.toByteArray();
+		}
+	}
+
+}
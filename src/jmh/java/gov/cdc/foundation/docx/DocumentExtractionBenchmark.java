@@ -0,0 +1,69 @@
+package gov.cdc.foundation.docx;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+
+import gov.cdc.foundation.SyntheticFiles;
+
+/**
+ * DOCX extraction to text and to JSON, as the extract endpoints do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentExtractionBenchmark {
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	@Param({ "1000", "20000" })
+	public int paragraphs;
+
+	private byte[] docx;
+
+	@Setup
+	public void setUp() throws Exception {
+		docx = SyntheticFiles.docx(paragraphs);
+	}
+
+	@Benchmark
+	public void text() throws Exception {
+		try (DOCXStreamingReader reader = new DOCXStreamingReader(new ByteArrayInputStream(docx))) {
+			Writer writer = new OutputStreamWriter(new NullOutputStream(), StandardCharsets.UTF_8);
+			reader.read(new TextWriter(writer), new DocumentOptions());
+			writer.flush();
+		}
+	}
+
+	@Benchmark
+	public void json() throws Exception {
+		try (DOCXStreamingReader reader = new DOCXStreamingReader(new ByteArrayInputStream(docx))) {
+			JsonDocumentWriter writer = new JsonDocumentWriter(JSON_FACTORY.createGenerator(new NullOutputStream(), JsonEncoding.UTF8));
+			writer.start();
+			reader.read(writer, new DocumentOptions());
+			writer.end();
+		}
+	}
+
+}
@@ -0,0 +1,43 @@
+package gov.cdc.foundation.xlsx;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The parser must not allocate: `gc.alloc.rate.norm` is expected to be ~0 B/op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class A1ParserBenchmark {
+
+	@Param({ "A1:D10", "$AB$12:$XFD$1048576", "B:D", "3:10" })
+	public String reference;
+
+	private final int[] area = new int[A1Parser.AREA_SIZE];
+
+	@Benchmark
+	public int parseArea() {
+		A1Parser.parseArea(reference, 0, reference.length(), area);
+		return area[A1Parser.END_COL];
+	}
+
+	@Benchmark
+	public int columnOf() {
+		return A1Parser.columnOf(reference);
+	}
+
+}
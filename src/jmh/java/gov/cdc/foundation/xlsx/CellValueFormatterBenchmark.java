@@ -0,0 +1,65 @@
+package gov.cdc.foundation.xlsx;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Formatting of a single cell value, the per-cell cost of every extraction.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CellValueFormatterBenchmark {
+
+	@Param({ "false", "true" })
+	public boolean isoDates;
+
+	private CellValueFormatter formatter;
+	private String dateStyle;
+
+	@Setup
+	public void setUp() {
+		StylesTable styles = new StylesTable();
+		XSSFCellStyle style = styles.createCellStyle();
+		style.setDataFormat(styles.putNumberFormat("yyyy-mm-dd hh:mm"));
+		dateStyle = Integer.toString(style.getIndex());
+		formatter = new CellValueFormatter(null, styles, isoDates);
+	}
+
+	@Benchmark
+	public String number() {
+		return formatter.format("n", "0", false, "1234.5", null);
+	}
+
+	@Benchmark
+	public String date() {
+		return formatter.format("n", dateStyle, false, "43466.5", null);
+	}
+
+	@Benchmark
+	public String bool() {
+		return formatter.format("b", "0", false, "1", null);
+	}
+
+	@Benchmark
+	public String inlineString() {
+		return formatter.format("inlineStr", "0", false, "", "value");
+	}
+
+}
@@ -0,0 +1,75 @@
+package gov.cdc.foundation.xlsx;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gov.cdc.foundation.SyntheticFiles;
+import gov.cdc.foundation.metrics.ConversionMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * CSV to XLSX conversion, including the zip of the workbook, with one or several parsing threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvConverterBenchmark {
+
+	@Param({ "1000", "50000" })
+	public int rows;
+
+	@Param({ "10", "100" })
+	public int cols;
+
+	@Param({ "1", "4" })
+	public int parallelism;
+
+	@Param({ "false", "true" })
+	public boolean inferTypes;
+
+	private byte[] csv;
+	private CsvConverter converter;
+	private ConversionMetrics metrics;
+
+	@Setup
+	public void setUp() {
+		csv = SyntheticFiles.csv(rows, cols);
+		converter = new CsvConverter(100, false, 1 << 20, parallelism);
+		metrics = new ConversionMetrics(new SimpleMeterRegistry());
+	}
+
+	@TearDown
+	public void tearDown() {
+		converter.destroy();
+	}
+
+	@Benchmark
+	public void convert() throws Exception {
+		SXSSFWorkbook wb = converter.convert(new ByteArrayInputStream(csv), StandardCharsets.UTF_8, "Sheet1", inferTypes, metrics.start("benchmark", csv.length));
+		try {
+			wb.write(new NullOutputStream());
+		} finally {
+			CsvConverter.close(wb);
+		}
+	}
+
+}
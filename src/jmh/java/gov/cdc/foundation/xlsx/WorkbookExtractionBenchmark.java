@@ -0,0 +1,68 @@
+package gov.cdc.foundation.xlsx;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.FileSystemResource;
+
+import gov.cdc.foundation.SyntheticFiles;
+
+/**
+ * Opens a workbook and extracts all its cells, as the extract endpoints do, without the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkbookExtractionBenchmark {
+
+	@Param({ "tall", "wide", "dates", "formulas", "strings" })
+	public String shape;
+
+	@Param({ "10000", "500000" })
+	public int cells;
+
+	@Param({ "false", "true" })
+	public boolean isoDates;
+
+	// The shared strings are kept in the heap, or always in mapped temp files
+	@Param({ "16777216", "0" })
+	public long stringsHeapLimit;
+
+	private WorkbookCache cache;
+	private FileSystemResource source;
+	private String range;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		File file = SyntheticFiles.xlsx(shape, cells);
+		cache = new WorkbookCache(false, 1, 1, stringsHeapLimit);
+		source = new FileSystemResource(file);
+		range = SyntheticFiles.range(shape, cells);
+	}
+
+	@Benchmark
+	public void extract(Blackhole bh) throws Exception {
+		try (WorkbookHandle wb = cache.open(source)) {
+			wb.setIsoDates(isoDates);
+			RangeReference reference = wb.resolveRange(range, "portrait");
+			wb.extract(wb.findSheet(null, reference), reference, bh::consume);
+		}
+	}
+
+}
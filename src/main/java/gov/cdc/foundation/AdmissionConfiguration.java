@@ -0,0 +1,29 @@
+package gov.cdc.foundation;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import gov.cdc.foundation.admission.AdmissionInterceptor;
+
+@Configuration
+public class AdmissionConfiguration implements WebMvcConfigurer {
+
+	@Autowired
+	private AdmissionInterceptor admissionInterceptor;
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		// The endpoints that open the package, with its shared strings and its styles
+		registry.addInterceptor(admissionInterceptor).addPathPatterns(
+			"/api/1.0/xlsx/sheets",
+			"/api/1.0/xlsx/extract/**",
+			"/api/1.0/xlsx/preview",
+			"/api/1.0/xlsx/documents/*/extract/**",
+			"/api/1.0/docx/extract/**",
+			"/api/1.0/docx/preview"
+		);
+	}
+
+}
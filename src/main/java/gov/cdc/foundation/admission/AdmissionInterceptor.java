@@ -0,0 +1,97 @@
+package gov.cdc.foundation.admission;
+
+import java.io.IOException;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.log4j.Logger;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import gov.cdc.foundation.upload.UploadSpooler;
+import gov.cdc.foundation.xlsx.DocumentStore;
+import gov.cdc.helper.common.ServiceException;
+
+/**
+ * Reserves the estimated memory of the uploaded or stored document before the parsing endpoints run,
+ * and gives it back once the response is complete. Async submissions are admitted by the job workers instead.
+ */
+@Component
+public class AdmissionInterceptor implements HandlerInterceptor {
+
+	private static final Logger logger = Logger.getLogger(AdmissionInterceptor.class);
+
+	private static final String RESERVATION = AdmissionInterceptor.class.getName() + ".reservation";
+
+	@Autowired
+	private MemoryBudget budget;
+
+	@Autowired
+	private DocumentStore documentStore;
+
+	@Autowired
+	private UploadSpooler uploadSpooler;
+
+	@Value("${xlsx.shared-strings.heap-limit}")
+	private long stringsHeapLimit;
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+		if (Boolean.parseBoolean(request.getParameter("async")))
+			return true;
+
+		long cost = estimate(request);
+		if (cost <= 0)
+			return true;
+
+		try {
+			request.setAttribute(RESERVATION, budget.admit(cost));
+			return true;
+		} catch (AdmissionRejectedException e) {
+			logger.warn(e.getMessage());
+			JSONObject json = new JSONObject();
+			json.put("success", false);
+			json.put("message", e.getMessage());
+			response.setStatus(e.getStatus().value());
+			response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+			response.getWriter().write(json.toString());
+			return false;
+		}
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+		Reservation reservation = (Reservation) request.getAttribute(RESERVATION);
+		if (reservation != null)
+			reservation.close();
+	}
+
+	@SuppressWarnings("unchecked")
+	private long estimate(HttpServletRequest request) throws IOException {
+		if (request instanceof MultipartHttpServletRequest) {
+			MultipartFile file = ((MultipartHttpServletRequest) request).getFile("file");
+			return file == null ? 0 : MemoryEstimator.estimate(file, !uploadSpooler.isSpooled(file.getSize()), stringsHeapLimit);
+		}
+
+		// Stored documents
+		Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+		if (variables == null || variables.get("id") == null)
+			return 0;
+		try {
+			return MemoryEstimator.estimate(documentStore.get(variables.get("id")).getFile(), stringsHeapLimit);
+		} catch (ServiceException e) {
+			// The endpoint reports the missing document
+			return 0;
+		}
+	}
+
+}
@@ -0,0 +1,23 @@
+package gov.cdc.foundation.admission;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown when a request can't get its share of the memory budget.
+ */
+public class AdmissionRejectedException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	private final HttpStatus status;
+
+	public AdmissionRejectedException(String message, HttpStatus status) {
+		super(message);
+		this.status = status;
+	}
+
+	public HttpStatus getStatus() {
+		return status;
+	}
+
+}
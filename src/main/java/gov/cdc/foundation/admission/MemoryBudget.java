@@ -0,0 +1,132 @@
+package gov.cdc.foundation.admission;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Global memory budget shared by the document parses. Requests wait in FIFO order until their estimated cost fits,
+ * for at most `timeout` seconds and with at most `maxQueue` requests waiting.
+ */
+@Component
+public class MemoryBudget implements MeterBinder {
+
+	private static final Logger logger = Logger.getLogger(MemoryBudget.class);
+
+	private final long capacity;
+	private final int maxQueue;
+	private final long timeout;
+
+	private final Deque<Object> waiting = new ArrayDeque<>();
+	private long used;
+	private long admitted;
+	private long rejected;
+
+	public MemoryBudget(@Value("${admission.budget}") long budget, @Value("${admission.max-queue}") int maxQueue, @Value("${admission.timeout}") long timeout) {
+		// Half of the heap by default, the rest is for the application itself and the responses
+		this.capacity = budget > 0 ? budget : Runtime.getRuntime().maxMemory() / 2;
+		this.maxQueue = maxQueue;
+		this.timeout = timeout;
+		logger.debug("Creating memory budget of " + capacity + " bytes...");
+	}
+
+	/**
+	 * Reserves the memory for a request, waiting at most `timeout` seconds behind at most `maxQueue` other requests.
+	 */
+	public Reservation admit(long bytes) throws AdmissionRejectedException, InterruptedException {
+		return reserve(bytes, System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout), true);
+	}
+
+	/**
+	 * Reserves the memory for a background job, waiting as long as needed.
+	 */
+	public Reservation await(long bytes) throws AdmissionRejectedException, InterruptedException {
+		return reserve(bytes, Long.MAX_VALUE, false);
+	}
+
+	private synchronized Reservation reserve(long bytes, long deadline, boolean boundedQueue) throws AdmissionRejectedException, InterruptedException {
+		if (bytes > capacity) {
+			rejected++;
+			throw new AdmissionRejectedException("The file is too large to be parsed: it needs about " + bytes + " bytes of memory.", HttpStatus.PAYLOAD_TOO_LARGE);
+		}
+
+		// Fast path, nobody is waiting
+		if (waiting.isEmpty() && used + bytes <= capacity)
+			return grant(bytes);
+
+		if (boundedQueue && waiting.size() >= maxQueue) {
+			rejected++;
+			throw new AdmissionRejectedException("Too many documents are being parsed, please retry later.", HttpStatus.TOO_MANY_REQUESTS);
+		}
+
+		Object ticket = new Object();
+		waiting.addLast(ticket);
+		try {
+			while (waiting.peekFirst() != ticket || used + bytes > capacity) {
+				long remaining = deadline == Long.MAX_VALUE ? 0 : TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				if (deadline != Long.MAX_VALUE && remaining <= 0) {
+					rejected++;
+					throw new AdmissionRejectedException("Too many documents are being parsed, please retry later.", HttpStatus.TOO_MANY_REQUESTS);
+				}
+				wait(remaining);
+			}
+			return grant(bytes);
+		} finally {
+			waiting.remove(ticket);
+			// The next request may fit too
+			notifyAll();
+		}
+	}
+
+	private Reservation grant(long bytes) {
+		used += bytes;
+		admitted++;
+		return new Reservation(this, bytes);
+	}
+
+	synchronized void release(long bytes) {
+		used -= bytes;
+		notifyAll();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("admission.memory.used", this, MemoryBudget::getUsed).baseUnit("bytes").register(registry);
+		Gauge.builder("admission.memory.capacity", this, MemoryBudget::getCapacity).baseUnit("bytes").register(registry);
+		Gauge.builder("admission.queued", this, MemoryBudget::getQueued).register(registry);
+	}
+
+	public synchronized long getUsed() {
+		return used;
+	}
+
+	public long getCapacity() {
+		return capacity;
+	}
+
+	public synchronized int getQueued() {
+		return waiting.size();
+	}
+
+	public synchronized Map<String, Object> getStats() {
+		Map<String, Object> stats = new HashMap<>();
+		stats.put("capacity", capacity);
+		stats.put("used", used);
+		stats.put("queued", waiting.size());
+		stats.put("admitted", admitted);
+		stats.put("rejected", rejected);
+		return stats;
+	}
+
+}
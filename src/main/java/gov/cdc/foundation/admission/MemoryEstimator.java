@@ -0,0 +1,85 @@
+package gov.cdc.foundation.admission;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.springframework.core.io.InputStreamSource;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Estimates the heap needed to parse an Office Open XML file from the sizes of its zip entries.
+ * The shared strings are kept as UTF-8 records and offsets in two heap arrays, which move to mapped temp files
+ * before they take more than `stringsHeapLimit` bytes, and the styles are loaded as XML beans.
+ * When the package is opened from a stream, every part is also inflated in memory, while from a file
+ * the other parts are streamed from the disk.
+ */
+public final class MemoryEstimator {
+
+	// A record and its offset take about the size of the `<si>` element, and the arrays grow by doubling
+	private static final int SHARED_STRINGS_FACTOR = 2;
+	private static final int STYLES_FACTOR = 4;
+
+	private MemoryEstimator() {
+		throw new IllegalAccessError("Helper class");
+	}
+
+	/**
+	 * Returns the estimated cost in bytes, or 0 if the file isn't a zip file.
+	 * `inMemory` is false when the package will be opened from a file.
+	 */
+	public static long estimate(InputStreamSource source, boolean inMemory, long stringsHeapLimit) throws IOException {
+		long cost = 0;
+		try (ZipInputStream zis = new ZipInputStream(source.getInputStream())) {
+			ZipEntry entry;
+			while ((entry = zis.getNextEntry()) != null) {
+				// The size is only in the data descriptor when the entry has been streamed
+				long size = entry.getSize() >= 0 ? entry.getSize() : ByteStreams.exhaust(zis);
+				cost += cost(entry.getName(), size, inMemory, stringsHeapLimit);
+			}
+		} catch (ZipException e) {
+			return 0;
+		}
+		return cost;
+	}
+
+	/**
+	 * Estimates a file opened from the disk.
+	 */
+	public static long estimate(File file, long stringsHeapLimit) throws IOException {
+		long cost = 0;
+		try (ZipFile zip = new ZipFile(file)) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				cost += cost(entry.getName(), entry.getSize() >= 0 ? entry.getSize() : sizeOf(zip, entry), false, stringsHeapLimit);
+			}
+		} catch (ZipException e) {
+			return 0;
+		}
+		return cost;
+	}
+
+	private static long sizeOf(ZipFile zip, ZipEntry entry) throws IOException {
+		try (InputStream is = zip.getInputStream(entry)) {
+			return ByteStreams.exhaust(is);
+		}
+	}
+
+	private static long cost(String name, long size, boolean inMemory, long stringsHeapLimit) {
+		long inflated = inMemory ? size : 0;
+		if (name.endsWith("sharedStrings.xml"))
+			return inflated + Math.min(size * SHARED_STRINGS_FACTOR, stringsHeapLimit);
+		else if (name.endsWith("styles.xml"))
+			return inflated + size * STYLES_FACTOR;
+		else
+			return inflated;
+	}
+
+}
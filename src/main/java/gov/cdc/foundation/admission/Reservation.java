@@ -0,0 +1,30 @@
+package gov.cdc.foundation.admission;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A share of the memory budget, given back when closed.
+ */
+public class Reservation implements Closeable {
+
+	private final MemoryBudget budget;
+	private final long bytes;
+	private final AtomicBoolean released = new AtomicBoolean();
+
+	Reservation(MemoryBudget budget, long bytes) {
+		this.budget = budget;
+		this.bytes = bytes;
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	@Override
+	public void close() {
+		if (released.compareAndSet(false, true))
+			budget.release(bytes);
+	}
+
+}
@@ -1,12 +1,20 @@
 package gov.cdc.foundation.controller;
 
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 
+import javax.servlet.http.HttpServletResponse;
+
 import org.apache.log4j.Logger;
-import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
-import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -18,8 +26,23 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import gov.cdc.foundation.docx.DOCXStreamingReader;
+import gov.cdc.foundation.docx.DocumentOptions;
+import gov.cdc.foundation.docx.JsonDocumentWriter;
+import gov.cdc.foundation.docx.Paragraph;
+import gov.cdc.foundation.docx.ParagraphPreview;
+import gov.cdc.foundation.docx.TextWriter;
 import gov.cdc.foundation.helper.LoggerHelper;
 import gov.cdc.foundation.helper.MessageHelper;
+import gov.cdc.foundation.jobs.JobManager;
+import gov.cdc.foundation.metrics.ConversionMetrics;
+import gov.cdc.foundation.metrics.ConversionTimer;
+import gov.cdc.foundation.upload.SpooledUpload;
+import gov.cdc.foundation.upload.UploadSpooler;
 import gov.cdc.helper.ErrorHandler;
 import gov.cdc.helper.common.ServiceException;
 import io.swagger.annotations.ApiOperation;
@@ -32,6 +55,21 @@ public class DOCXController {
 
 	private static final Logger logger = Logger.getLogger(DOCXController.class);
 
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private static final String TEXT_CONTENT_TYPE = "text/plain;charset=UTF-8";
+
+	private static final int MAX_PREVIEW_PARAGRAPHS = 1000;
+
+	@Autowired
+	private JobManager jobManager;
+
+	@Autowired
+	private ConversionMetrics metrics;
+
+	@Autowired
+	private UploadSpooler uploadSpooler;
+
 	@RequestMapping(
 		value = "extract",
 		method = RequestMethod.POST,
@@ -39,36 +77,232 @@ public class DOCXController {
 	)
 	@ApiOperation(
 		value = "Extract text from DOCX",
-		notes = "Extract text from DOCX"
+		notes = "Extract text from DOCX, the paragraphs are written as they are read"
 	)
 	@ResponseBody
 	public ResponseEntity<?> extractDataToJson(
 		@ApiParam(value = "DOCX File") @RequestParam("file") MultipartFile file,
-		@ApiParam(value = "Expected file name") @RequestParam(value = "filename", required = false) String filename
+		@ApiParam(value = "Include the tables") @RequestParam(value = "tables", required = false, defaultValue = "true") boolean tables,
+		@ApiParam(value = "Include the headers") @RequestParam(value = "headers", required = false, defaultValue = "true") boolean headers,
+		@ApiParam(value = "Include the footers") @RequestParam(value = "footers", required = false, defaultValue = "true") boolean footers,
+		@ApiParam(value = "Expected file name") @RequestParam(value = "filename", required = false) String filename,
+		@ApiParam(value = "Run in the background and return a job id") @RequestParam(value = "async", required = false, defaultValue = "false") boolean async,
+		HttpServletResponse response
 	) {		
 		Map<String, Object> log = new HashMap<String, Object>();
 		log.put(MessageHelper.CONST_METHOD, MessageHelper.METHOD_EXTRACTDATA_DOCX);
 		log.put(MessageHelper.CONST_FILENAME, file.getOriginalFilename());
 
+		SpooledUpload upload = null;
+		DOCXStreamingReader reader = null;
+
 		try {
 			if (!file.getOriginalFilename().toLowerCase().endsWith(".docx"))
 				throw new ServiceException("Only *.docx files are supported.");
 
-			XWPFDocument doc = new XWPFDocument(file.getInputStream());
-			XWPFWordExtractor extractor = new XWPFWordExtractor(doc);
+			DocumentOptions options = new DocumentOptions().setTables(tables).setHeaders(headers).setFooters(footers);
 
 			// Get filename
 			String fn = filename == null || filename.isEmpty() ? UUID.randomUUID().toString() + ".txt" : filename;
 			String headerValue = filename != null &&  !filename.isEmpty() ? "attachment; " : "";
 			headerValue += "filename=" + fn;
 
-			return ResponseEntity.status(HttpStatus.OK).header("Content-Disposition", headerValue).body(extractor.getText());
+			if (async) {
+				long size = file.getSize();
+				return JobController.submit(jobManager, file, TEXT_CONTENT_TYPE, headerValue, (input, os) -> {
+					ConversionTimer timer = metrics.start("docx.extract", size);
+					try (DOCXStreamingReader r = DOCXStreamingReader.open(input)) {
+						timer.stage("open");
+						writeText(r, options, os);
+						timer.stage("extract");
+					}
+					timer.finish();
+				});
+			}
+
+			ConversionTimer timer = metrics.start("docx.extract", file.getSize());
+			upload = uploadSpooler.spool(file);
+			reader = DOCXStreamingReader.open(upload.getSource());
+			timer.stage("open");
+			response.setStatus(HttpStatus.OK.value());
+			response.setContentType(TEXT_CONTENT_TYPE);
+			response.setHeader("Content-Disposition", headerValue);
+			writeText(reader, options, response.getOutputStream());
+			timer.stage("extract");
+			timer.finish();
+
+			return null;
 		} catch (Exception e) {
 			logger.error(e);
 			LoggerHelper.log(MessageHelper.METHOD_EXTRACTDATA_DOCX, log);
-			
+
+			// Once the first paragraphs have been sent, the error can't be reported to the client anymore
+			if (response.isCommitted())
+				return null;
 			return ErrorHandler.getInstance().handle(e, log);
+		} finally {
+			if (reader != null)
+				reader.close();
+			if (upload != null)
+				upload.close();
 		}
 	}
 
+	@RequestMapping(
+		value = "extract/json",
+		method = RequestMethod.POST,
+		produces = MediaType.APPLICATION_JSON_VALUE
+	)
+	@ApiOperation(
+		value = "Extract paragraphs and tables from DOCX",
+		notes = "Extract paragraphs with their style, heading level and list, and tables as arrays of rows, from DOCX to JSON"
+	)
+	@ResponseBody
+	public ResponseEntity<?> extractStructureToJson(
+		@ApiParam(value = "DOCX File") @RequestParam("file") MultipartFile file,
+		@ApiParam(value = "Parts of the body", allowableValues = "all,tables,headings") @RequestParam(value = "parts", required = false, defaultValue = "all") String parts,
+		@ApiParam(value = "Include the headers") @RequestParam(value = "headers", required = false, defaultValue = "false") boolean headers,
+		@ApiParam(value = "Include the footers") @RequestParam(value = "footers", required = false, defaultValue = "false") boolean footers,
+		@ApiParam(value = "Expected file name") @RequestParam(value = "filename", required = false) String filename,
+		@ApiParam(value = "Run in the background and return a job id") @RequestParam(value = "async", required = false, defaultValue = "false") boolean async,
+		HttpServletResponse response
+	) {
+		Map<String, Object> log = new HashMap<String, Object>();
+		log.put(MessageHelper.CONST_METHOD, MessageHelper.METHOD_EXTRACTDATA_DOCX);
+		log.put(MessageHelper.CONST_FILENAME, file.getOriginalFilename());
+
+		SpooledUpload upload = null;
+		DOCXStreamingReader reader = null;
+
+		try {
+			if (!file.getOriginalFilename().toLowerCase().endsWith(".docx"))
+				throw new ServiceException("Only *.docx files are supported.");
+
+			DocumentOptions options = DocumentOptions.forParts(parts).setHeaders(headers).setFooters(footers);
+
+			// Get filename
+			String fn = filename == null || filename.isEmpty() ? UUID.randomUUID().toString() + ".json" : filename;
+			String headerValue = filename != null && !filename.isEmpty() ? "attachment; " : "";
+			headerValue += "filename=" + fn;
+
+			if (async) {
+				long size = file.getSize();
+				return JobController.submit(jobManager, file, MediaType.APPLICATION_JSON_UTF8_VALUE, headerValue, (input, os) -> {
+					ConversionTimer timer = metrics.start("docx.extract.json", size);
+					try (DOCXStreamingReader r = DOCXStreamingReader.open(input)) {
+						timer.stage("open");
+						writeJson(r, options, os);
+						timer.stage("extract");
+					}
+					timer.finish();
+				});
+			}
+
+			ConversionTimer timer = metrics.start("docx.extract.json", file.getSize());
+			upload = uploadSpooler.spool(file);
+			reader = DOCXStreamingReader.open(upload.getSource());
+			timer.stage("open");
+			response.setStatus(HttpStatus.OK.value());
+			response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+			response.setHeader("Content-Disposition", headerValue);
+			writeJson(reader, options, response.getOutputStream());
+			timer.stage("extract");
+			timer.finish();
+
+			return null;
+		} catch (Exception e) {
+			logger.error(e);
+			LoggerHelper.log(MessageHelper.METHOD_EXTRACTDATA_DOCX, log);
+
+			// Once the first items have been sent, the error can't be reported to the client anymore
+			if (response.isCommitted())
+				return null;
+			return ErrorHandler.getInstance().handle(e, log);
+		} finally {
+			if (reader != null)
+				reader.close();
+			if (upload != null)
+				upload.close();
+		}
+	}
+
+	@RequestMapping(
+		value = "preview",
+		method = RequestMethod.POST,
+		produces = MediaType.APPLICATION_JSON_VALUE
+	)
+	@ApiOperation(
+		value = "Preview the first paragraphs of a DOCX",
+		notes = "Get the first non-empty paragraphs of the body, outside of the tables. The body is only read until these paragraphs have been found."
+	)
+	@ResponseBody
+	public ResponseEntity<?> preview(
+		@ApiParam(value = "DOCX File") @RequestParam("file") MultipartFile file,
+		@ApiParam(value = "Number of non-empty paragraphs") @RequestParam(value = "paragraphs", required = false, defaultValue = "20") int paragraphs
+	) {
+		ObjectMapper mapper = new ObjectMapper();
+		Map<String, Object> log = new HashMap<String, Object>();
+		log.put(MessageHelper.CONST_METHOD, MessageHelper.METHOD_PREVIEW_DOCX);
+		log.put(MessageHelper.CONST_FILENAME, file.getOriginalFilename());
+
+		SpooledUpload upload = null;
+		DOCXStreamingReader reader = null;
+
+		try {
+			if (!file.getOriginalFilename().toLowerCase().endsWith(".docx"))
+				throw new ServiceException("Only *.docx files are supported.");
+			if (paragraphs < 1 || paragraphs > MAX_PREVIEW_PARAGRAPHS)
+				throw new ServiceException("The number of paragraphs must be between 1 and " + MAX_PREVIEW_PARAGRAPHS + ".");
+
+			ConversionTimer timer = metrics.start("docx.preview", file.getSize());
+			upload = uploadSpooler.spool(file);
+			reader = DOCXStreamingReader.open(upload.getSource());
+			timer.stage("open");
+			ParagraphPreview preview = new ParagraphPreview(paragraphs);
+			reader.read(preview, new DocumentOptions().setTables(false).setHeaders(false).setFooters(false));
+			timer.stage("extract");
+			timer.finish();
+
+			JSONArray items = new JSONArray();
+			for (Paragraph paragraph : preview.getParagraphs()) {
+				JSONObject obj = new JSONObject();
+				obj.put("text", paragraph.getText());
+				if (paragraph.getStyle() != null)
+					obj.put("style", paragraph.getStyle());
+				if (paragraph.getHeadingLevel() > 0)
+					obj.put("heading", paragraph.getHeadingLevel());
+				items.put(obj);
+			}
+			JSONObject result = new JSONObject();
+			result.put("items", items);
+			result.put("total", items.length());
+			return ResponseEntity.status(HttpStatus.OK).body(mapper.readTree(result.toString()));
+		} catch (Exception e) {
+			logger.error(e);
+			LoggerHelper.log(MessageHelper.METHOD_PREVIEW_DOCX, log);
+
+			return ErrorHandler.getInstance().handle(e, log);
+		} finally {
+			if (reader != null)
+				reader.close();
+			if (upload != null)
+				upload.close();
+		}
+	}
+
+	private static void writeText(DOCXStreamingReader reader, DocumentOptions options, OutputStream os) throws Exception {
+		// Write the paragraphs as they are read from the document
+		Writer writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+		reader.read(new TextWriter(writer), options);
+		writer.flush();
+	}
+
+	private static void writeJson(DOCXStreamingReader reader, DocumentOptions options, OutputStream os) throws Exception {
+		// Write the items as they are read from the document
+		JsonDocumentWriter writer = new JsonDocumentWriter(JSON_FACTORY.createGenerator(os, JsonEncoding.UTF8));
+		writer.start();
+		reader.read(writer, options);
+		writer.end();
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,193 @@
+package gov.cdc.foundation.controller;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.log4j.Logger;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import gov.cdc.foundation.helper.LoggerHelper;
+import gov.cdc.foundation.helper.MessageHelper;
+import gov.cdc.foundation.jobs.Job;
+import gov.cdc.foundation.jobs.JobManager;
+import gov.cdc.foundation.jobs.JobTask;
+import gov.cdc.helper.ErrorHandler;
+import gov.cdc.helper.common.ServiceException;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+
+@Controller
+@EnableAutoConfiguration
+@RequestMapping("/api/1.0/jobs")
+public class JobController {
+
+	private static final Logger logger = Logger.getLogger(JobController.class);
+
+	@Autowired
+	private JobManager jobManager;
+
+	/**
+	 * Submits a conversion in async mode: 202 with the job, or 429 when the queue is full.
+	 */
+	static ResponseEntity<?> submit(JobManager jobManager, MultipartFile file, String contentType, String contentDisposition, JobTask task) throws IOException {
+		ObjectMapper mapper = new ObjectMapper();
+		try {
+			Job job = jobManager.submit(file, contentType, contentDisposition, task);
+			return ResponseEntity.status(HttpStatus.ACCEPTED).body(mapper.valueToTree(job.toMap()));
+		} catch (RejectedExecutionException e) {
+			JSONObject result = new JSONObject();
+			result.put("success", false);
+			result.put("message", e.getMessage());
+			return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(mapper.readTree(result.toString()));
+		}
+	}
+
+	@RequestMapping(
+		value = "",
+		method = RequestMethod.GET,
+		produces = MediaType.APPLICATION_JSON_VALUE
+	)
+	@ApiOperation(
+		value = "Get the job queue statistics",
+		notes = "Get the number of workers, running jobs and queued jobs."
+	)
+	@ResponseBody
+	public ResponseEntity<?> getJobStats() throws IOException {
+		ObjectMapper mapper = new ObjectMapper();
+		Map<String, Object> log = MessageHelper.initializeLog(MessageHelper.METHOD_GETJOBSTATS);
+
+		try {
+			Map<String, Object> stats = jobManager.getStats();
+			stats.put("ttl", jobManager.getTtl());
+			return ResponseEntity.status(HttpStatus.OK).body(mapper.valueToTree(stats));
+		} catch (Exception e) {
+			logger.error(e);
+			LoggerHelper.log(MessageHelper.METHOD_GETJOBSTATS, log);
+
+			return ErrorHandler.getInstance().handle(e, log);
+		}
+	}
+
+	@RequestMapping(
+		value = "{id}",
+		method = RequestMethod.GET,
+		produces = MediaType.APPLICATION_JSON_VALUE
+	)
+	@ApiOperation(
+		value = "Get the status of a job",
+		notes = "Get the status of a job: queued, running, succeeded or failed."
+	)
+	@ResponseBody
+	public ResponseEntity<?> getJob(
+		@ApiParam(value = "Job id") @PathVariable(value = "id") String id
+	) throws IOException {
+		ObjectMapper mapper = new ObjectMapper();
+		Map<String, Object> log = new HashMap<String, Object>();
+		log.put(MessageHelper.CONST_METHOD, MessageHelper.METHOD_GETJOB);
+		log.put(MessageHelper.CONST_ID, id);
+
+		try {
+			return ResponseEntity.status(HttpStatus.OK).body(mapper.valueToTree(jobManager.get(id).toMap()));
+		} catch (Exception e) {
+			logger.error(e);
+			LoggerHelper.log(MessageHelper.METHOD_GETJOB, log);
+
+			return ErrorHandler.getInstance().handle(e, log);
+		}
+	}
+
+	@RequestMapping(
+		value = "{id}/result",
+		method = RequestMethod.GET
+	)
+	@ApiOperation(
+		value = "Get the result of a job",
+		notes = "Get the result of a succeeded job. It is deleted when the job expires."
+	)
+	@ResponseBody
+	public ResponseEntity<?> getJobResult(
+		@ApiParam(value = "Job id") @PathVariable(value = "id") String id,
+		HttpServletResponse response
+	) throws IOException {
+		Map<String, Object> log = new HashMap<String, Object>();
+		log.put(MessageHelper.CONST_METHOD, MessageHelper.METHOD_GETJOBRESULT);
+		log.put(MessageHelper.CONST_ID, id);
+
+		try {
+			Job job = jobManager.get(id);
+			if (job.getStatus() == Job.Status.FAILED)
+				throw new ServiceException("The following job failed: " + id + ", " + job.getMessage());
+			if (job.getStatus() != Job.Status.SUCCEEDED)
+				throw new ServiceException("The following job isn't finished yet: " + id);
+
+			response.setStatus(HttpStatus.OK.value());
+			response.setContentType(job.getContentType());
+			response.setHeader("Content-Disposition", job.getContentDisposition());
+			response.setContentLengthLong(job.getResult().length());
+			Files.copy(job.getResult().toPath(), response.getOutputStream());
+
+			return null;
+		} catch (Exception e) {
+			logger.error(e);
+			LoggerHelper.log(MessageHelper.METHOD_GETJOBRESULT, log);
+
+			// Once the first bytes have been sent, the error can't be reported to the client anymore
+			if (response.isCommitted())
+				return null;
+			return ErrorHandler.getInstance().handle(e, log);
+		}
+	}
+
+	@RequestMapping(
+		value = "{id}",
+		method = RequestMethod.DELETE,
+		produces = MediaType.APPLICATION_JSON_VALUE
+	)
+	@ApiOperation(
+		value = "Delete a job",
+		notes = "Cancel a job if it isn't finished, and delete its result."
+	)
+	@ResponseBody
+	public ResponseEntity<?> deleteJob(
+		@ApiParam(value = "Job id") @PathVariable(value = "id") String id
+	) throws IOException {
+		ObjectMapper mapper = new ObjectMapper();
+		Map<String, Object> log = new HashMap<String, Object>();
+		log.put(MessageHelper.CONST_METHOD, MessageHelper.METHOD_DELETEJOB);
+		log.put(MessageHelper.CONST_ID, id);
+
+		try {
+			jobManager.delete(id);
+
+			JSONObject result = new JSONObject();
+			result.put("id", id);
+			result.put("deleted", true);
+
+			return ResponseEntity.status(HttpStatus.OK).body(mapper.readTree(result.toString()));
+		} catch (Exception e) {
+			logger.error(e);
+			LoggerHelper.log(MessageHelper.METHOD_DELETEJOB, log);
+
+			return ErrorHandler.getInstance().handle(e, log);
+		}
+	}
+
+}
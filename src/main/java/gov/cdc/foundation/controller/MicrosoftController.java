@@ -5,9 +5,11 @@ import java.util.Map;
 
 import org.apache.log4j.Logger;
 import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -16,9 +18,11 @@ import org.springframework.web.bind.annotation.ResponseBody;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import gov.cdc.foundation.admission.MemoryBudget;
 import gov.cdc.foundation.helper.LoggerHelper;
 import gov.cdc.foundation.helper.MessageHelper;
 import gov.cdc.helper.ErrorHandler;
+import io.swagger.annotations.ApiOperation;
 
 @Controller
 @EnableAutoConfiguration
@@ -30,6 +34,9 @@ public class MicrosoftController {
 	@Value("${version}")
 	private String version;
 
+	@Autowired
+	private MemoryBudget memoryBudget;
+
 	@RequestMapping(method = RequestMethod.GET)
 	@ResponseBody
 	public ResponseEntity<?> index() throws IOException {
@@ -48,4 +55,28 @@ public class MicrosoftController {
 		}
 	}
 
+	@RequestMapping(
+		value = "admission",
+		method = RequestMethod.GET,
+		produces = MediaType.APPLICATION_JSON_VALUE
+	)
+	@ApiOperation(
+		value = "Get the memory budget statistics",
+		notes = "Get the memory budget, the memory reserved by the documents being parsed and the number of requests waiting for it."
+	)
+	@ResponseBody
+	public ResponseEntity<?> getAdmissionStats() throws IOException {
+		ObjectMapper mapper = new ObjectMapper();
+		Map<String, Object> log = MessageHelper.initializeLog(MessageHelper.METHOD_GETADMISSIONSTATS);
+
+		try {
+			return new ResponseEntity<>(mapper.valueToTree(memoryBudget.getStats()), HttpStatus.OK);
+		} catch (Exception e) {
+			logger.error(e);
+			LoggerHelper.log(MessageHelper.METHOD_GETADMISSIONSTATS, log);
+
+			return ErrorHandler.getInstance().handle(e, log);
+		}
+	}
+
 }
\ No newline at end of file
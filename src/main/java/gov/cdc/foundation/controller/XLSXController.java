@@ -1,50 +1,75 @@
 package gov.cdc.foundation.controller;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.Date;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.QuoteMode;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.log4j.Logger;
-import org.apache.poi.hssf.usermodel.HSSFDateUtil;
-import org.apache.poi.ss.format.CellDateFormatter;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import gov.cdc.foundation.helper.LoggerHelper;
+import gov.cdc.foundation.jobs.JobManager;
 import gov.cdc.foundation.helper.MessageHelper;
+import gov.cdc.foundation.metrics.ConversionMetrics;
+import gov.cdc.foundation.metrics.ConversionTimer;
+import gov.cdc.foundation.upload.SpooledUpload;
+import gov.cdc.foundation.upload.UploadSpooler;
+import gov.cdc.foundation.xlsx.BatchExtraction;
+import gov.cdc.foundation.xlsx.BatchExtractor;
+import gov.cdc.foundation.xlsx.CellValueFormatter;
+import gov.cdc.foundation.xlsx.CsvConverter;
+import gov.cdc.foundation.xlsx.DocumentStore;
+import gov.cdc.foundation.xlsx.ExtractionSpec;
+import gov.cdc.foundation.xlsx.JsonRowWriter;
+import gov.cdc.foundation.xlsx.PreviewExtractor;
+import gov.cdc.foundation.xlsx.RangeReference;
+import gov.cdc.foundation.xlsx.RowSelection;
+import gov.cdc.foundation.xlsx.SheetInfo;
+import gov.cdc.foundation.xlsx.SheetRowHandler;
+import gov.cdc.foundation.xlsx.StoredDocument;
+import gov.cdc.foundation.xlsx.WorkbookCache;
+import gov.cdc.foundation.xlsx.WorkbookHandle;
 import gov.cdc.helper.ErrorHandler;
 import gov.cdc.helper.common.ServiceException;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
-import kotlin.text.Regex;
 
 @Controller
 @EnableAutoConfiguration
@@ -53,6 +78,35 @@ public class XLSXController {
 
 	private static final Logger logger = Logger.getLogger(XLSXController.class);
 
+	@Autowired
+	private WorkbookCache workbookCache;
+
+	@Autowired
+	private DocumentStore documentStore;
+
+	@Autowired
+	private BatchExtractor batchExtractor;
+
+	@Autowired
+	private CsvConverter csvConverter;
+
+	@Autowired
+	private UploadSpooler uploadSpooler;
+
+	@Autowired
+	private JobManager jobManager;
+
+	@Autowired
+	private ConversionMetrics metrics;
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private static final String XLSX_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+	private static final int MAX_PREVIEW_ROWS = 1000;
+
+	private static final CSVFormat CSV_FORMAT = CSVFormat.DEFAULT.withQuoteMode(QuoteMode.ALL).withRecordSeparator('\n');
+
 	@RequestMapping(
 		value = "sheets",
 		method = RequestMethod.POST,
@@ -60,47 +114,138 @@ public class XLSXController {
 	)
 	@ApiOperation(
 		value = "Get the list of sheets",
-		notes = "Get the list of sheets of a XLSX file."
+		notes = "Get the list of sheets of a XLSX file. Only the workbook part is read, and the beginning of each sheet part if the dimensions are requested."
 	)
 	@ResponseBody
 	public ResponseEntity<?> getSheets(
-		@ApiParam(value = "XLSX File") @RequestParam("file") MultipartFile file
+		@ApiParam(value = "XLSX File") @RequestParam("file") MultipartFile file,
+		@ApiParam(value = "Include the used range of each sheet") @RequestParam(value = "dimensions", required = false, defaultValue = "false") boolean dimensions
 	) throws IOException {
 		ObjectMapper mapper = new ObjectMapper();
 		Map<String, Object> log = new HashMap<String, Object>();
 		log.put(MessageHelper.CONST_METHOD, MessageHelper.METHOD_GETSHEETS);
 		log.put(MessageHelper.CONST_FILENAME, file.getOriginalFilename());
 
-		Workbook wb = null;
+		SpooledUpload upload = null;
+		WorkbookHandle wb = null;
 
 		try {
 			if (!file.getOriginalFilename().toLowerCase().endsWith(".xlsx"))
 				throw new ServiceException("Only *.xlsx files are supported.");
 
-			// Build the JSON
-			JSONArray arr = new JSONArray();
-			wb = WorkbookFactory.create(file.getInputStream());
-			for (int i = 0; i < wb.getNumberOfSheets(); i++) {
-				Sheet sheet = wb.getSheetAt(i);
-				JSONObject obj = new JSONObject();
-				obj.put("name", sheet.getSheetName());
-				obj.put("index", i);
-				arr.put(obj);
+			upload = uploadSpooler.spool(file);
+			wb = workbookCache.open(upload.getSource());
+
+			return ResponseEntity.status(HttpStatus.OK).body(mapper.readTree(sheetsToJson(wb, dimensions).toString()));
+		} catch (Exception e) {
+			logger.error(e);
+			LoggerHelper.log(MessageHelper.METHOD_GETSHEETS, log);
+
+			return ErrorHandler.getInstance().handle(e, log);
+		} finally {
+			if (wb != null)
+				wb.close();
+			if (upload != null)
+				upload.close();
+		}
+	}
+
+	@RequestMapping(
+		value = "preview",
+		method = RequestMethod.POST,
+		produces = MediaType.APPLICATION_JSON_VALUE
+	)
+	@ApiOperation(
+		value = "Preview the first rows of a sheet",
+		notes = "Get the first non-empty rows of a sheet and the range they use. The sheet is only read until these rows have been found."
+	)
+	@ResponseBody
+	public ResponseEntity<?> preview(
+		@ApiParam(value = "XLSX File") @RequestParam("file") MultipartFile file,
+		@ApiParam(value = "Sheet Name, the first sheet by default") @RequestParam(value = "sheetName", required = false) String sheetName,
+		@ApiParam(value = "Number of non-empty rows") @RequestParam(value = "rows", required = false, defaultValue = "20") int rows,
+		@ApiParam(value = "Date format, `excel` uses the number format of the cells", allowableValues = "excel,iso") @RequestParam(value = "dateFormat", required = false, defaultValue = "excel") String dateFormat
+	) throws IOException {
+		ObjectMapper mapper = new ObjectMapper();
+		Map<String, Object> log = new HashMap<String, Object>();
+		log.put(MessageHelper.CONST_METHOD, MessageHelper.METHOD_PREVIEW_XLSX);
+		log.put(MessageHelper.CONST_FILENAME, file.getOriginalFilename());
+
+		SpooledUpload upload = null;
+		WorkbookHandle wb = null;
+
+		try {
+			if (!file.getOriginalFilename().toLowerCase().endsWith(".xlsx"))
+				throw new ServiceException("Only *.xlsx files are supported.");
+			if (rows < 1 || rows > MAX_PREVIEW_ROWS)
+				throw new ServiceException("The number of rows must be between 1 and " + MAX_PREVIEW_ROWS + ".");
+
+			ConversionTimer timer = metrics.start("xlsx.preview", file.getSize());
+			upload = uploadSpooler.spool(file);
+			// Hashing the upload would read all of it, so the preview doesn't go through the cache
+			wb = workbookCache.open(upload.getSource(), null);
+			wb.setIsoDates(CellValueFormatter.isIso(dateFormat));
+			timer.stage("open");
+			String s = wb.findSheet(sheetName);
+			if (s == null)
+				throw new ServiceException("The following sheet doesn't exist: " + sheetName);
+			timer.stage("lookup");
+
+			PreviewExtractor extractor = new PreviewExtractor(rows);
+			wb.read(s, extractor);
+			timer.stage("extract");
+
+			JSONArray items = new JSONArray();
+			for (String[] row : extractor.getRows()) {
+				JSONArray arr = new JSONArray();
+				for (String value : row)
+					arr.put(value);
+				items.put(arr);
+				timer.count(1, row.length);
 			}
+			timer.finish();
 
 			JSONObject result = new JSONObject();
-			result.put("items", arr);
-			result.put("total", arr.length());
-
+			result.put("sheetName", s);
+			result.put("range", extractor.getRange() == null ? JSONObject.NULL : extractor.getRange());
+			result.put("items", items);
+			result.put("rows", items.length());
+			result.put("cols", items.length() == 0 ? 0 : items.getJSONArray(0).length());
 			return ResponseEntity.status(HttpStatus.OK).body(mapper.readTree(result.toString()));
 		} catch (Exception e) {
 			logger.error(e);
-			LoggerHelper.log(MessageHelper.METHOD_GETSHEETS, log);
+			LoggerHelper.log(MessageHelper.METHOD_PREVIEW_XLSX, log);
 
 			return ErrorHandler.getInstance().handle(e, log);
 		} finally {
 			if (wb != null)
 				wb.close();
+			if (upload != null)
+				upload.close();
+		}
+	}
+
+	@RequestMapping(
+		value = "cache",
+		method = RequestMethod.GET,
+		produces = MediaType.APPLICATION_JSON_VALUE
+	)
+	@ApiOperation(
+		value = "Get the workbook cache statistics",
+		notes = "Get the hit, miss and eviction counts of the parsed workbook cache."
+	)
+	@ResponseBody
+	public ResponseEntity<?> getCacheStats() throws IOException {
+		ObjectMapper mapper = new ObjectMapper();
+		Map<String, Object> log = MessageHelper.initializeLog(MessageHelper.METHOD_GETCACHESTATS);
+
+		try {
+			return ResponseEntity.status(HttpStatus.OK).body(mapper.valueToTree(workbookCache.getStats()));
+		} catch (Exception e) {
+			logger.error(e);
+			LoggerHelper.log(MessageHelper.METHOD_GETCACHESTATS, log);
+
+			return ErrorHandler.getInstance().handle(e, log);
 		}
 	}
 
@@ -116,53 +261,73 @@ public class XLSXController {
 	@ResponseBody
 	public ResponseEntity<?> extractDataToJson(@ApiParam(value = "XLSX File") @RequestParam("file") MultipartFile file,
 		@ApiParam(value = "Sheet Name") @RequestParam(value = "sheetName", required = false) String sheetName,
-		@ApiParam(value = "Sheet Range like A1:D1 or A2:A10") @RequestParam(value = "sheetRange") String sheetRange,
+		@ApiParam(value = "Sheet Range like A1:D1, A2:A10, A:D, A1:A5,C1:C5 or a defined name") @RequestParam(value = "sheetRange") String sheetRange,
 		@ApiParam(value = "Orientation", allowableValues = "portrait,landscape") @RequestParam(value = "orientation", required = false, defaultValue = "portrait") String orientation,
-		@ApiParam(value = "Expected file name") @RequestParam(value = "filename", required = false) String filename
+		@ApiParam(value = "Date format, `excel` uses the number format of the cells", allowableValues = "excel,iso") @RequestParam(value = "dateFormat", required = false, defaultValue = "excel") String dateFormat,
+		@ApiParam(value = "Columns to keep in portrait mode, as letters or headers of the first row, like A,C or Name,City") @RequestParam(value = "columns", required = false) String columns,
+		@ApiParam(value = "Filters on the rows in portrait mode, like City:eq:Atlanta, Name:contains:smith or Age:gt:30 (eq, ne, contains, gt, ge, lt, le)") @RequestParam(value = "filter", required = false) List<String> filters,
+		@ApiParam(value = "Number of rows skipped after the start of the range in portrait mode") @RequestParam(value = "offset", required = false, defaultValue = "0") int offset,
+		@ApiParam(value = "Maximum number of rows in portrait mode, 0 for all") @RequestParam(value = "limit", required = false, defaultValue = "0") int limit,
+		@ApiParam(value = "Run in the background and return a job id") @RequestParam(value = "async", required = false, defaultValue = "false") boolean async,
+		@ApiParam(value = "Expected file name") @RequestParam(value = "filename", required = false) String filename,
+		HttpServletResponse response
 	) throws IOException {
-		ObjectMapper mapper = new ObjectMapper();
 		Map<String, Object> log = new HashMap<String, Object>();
 		log.put(MessageHelper.CONST_METHOD, MessageHelper.METHOD_EXTRACTDATA_XLSX);
 		log.put(MessageHelper.CONST_FILENAME, file.getOriginalFilename());
 
-		Workbook wb = null;
+		SpooledUpload upload = null;
+		WorkbookHandle wb = null;
 
 		try {
 			if (!file.getOriginalFilename().toLowerCase().endsWith(".xlsx"))
 				throw new ServiceException("Only *.xlsx files are supported.");
 
-			wb = WorkbookFactory.create(file.getInputStream());
-
-			// Get sheet
-			Sheet s = sheetName == null || sheetName.isEmpty() ? wb.getSheetAt(0) : wb.getSheet(sheetName);
-
-			if (s == null)
-				throw new ServiceException("The following sheet doesn't exist: " + sheetName);
-
-			// Get data
-			JSONArray data = extractData(s, sheetRange == null ? "" : sheetRange, orientation == null || orientation.isEmpty() ? "portrait" : orientation);
-
-			// Get filename
-			String fn = filename == null || filename.isEmpty() ? UUID.randomUUID().toString() + ".json" : filename;
-			String headerValue = filename != null && !filename.isEmpty() ? "attachment; " : "";
-			headerValue += "filename=" + fn;
+			boolean isoDates = CellValueFormatter.isIso(dateFormat);
+			RowSelection selection = RowSelection.parse(columns, filters, offset, limit);
+			if (async) {
+				// Get filename
+				String fn = filename == null || filename.isEmpty() ? UUID.randomUUID().toString() + ".json" : filename;
+				String headerValue = filename != null && !filename.isEmpty() ? "attachment; " : "";
+				headerValue += "filename=" + fn;
+
+				long size = file.getSize();
+				return JobController.submit(jobManager, file, MediaType.APPLICATION_JSON_UTF8_VALUE, headerValue, (input, os) -> {
+					ConversionTimer timer = metrics.start("xlsx.extract.json", size);
+					try (WorkbookHandle handle = workbookCache.open(input)) {
+						handle.setIsoDates(isoDates);
+						timer.stage("open");
+						RangeReference range = handle.resolveRange(sheetRange, orientation);
+						String s = getSheet(handle, sheetName, range);
+						timer.stage("lookup");
+						writeJson(handle, s, range, selection, os, timer);
+					}
+					timer.finish();
+				});
+			}
 
-			JSONObject json = new JSONObject();
-			json.put("rows", data.length());
-			json.put("cols", data.length() > 0 ? data.getJSONArray(0).length() : 0);
-			json.put("items", data);
+			ConversionTimer timer = metrics.start("xlsx.extract.json", file.getSize());
+			upload = uploadSpooler.spool(file);
+			wb = workbookCache.open(upload.getSource());
+			wb.setIsoDates(isoDates);
+			timer.stage("open");
+			writeJson(wb, sheetName, sheetRange, orientation, selection, filename, response, timer);
+			timer.finish();
 
-			return ResponseEntity.status(HttpStatus.OK).header(
-					"Content-Disposition", headerValue
-			).body(mapper.readTree(json.toString()));
+			return null;
 		} catch (Exception e) {
 			logger.error(e);
 			LoggerHelper.log(MessageHelper.METHOD_EXTRACTDATA_XLSX, log);
 
+			// Once the first rows have been sent, the error can't be reported to the client anymore
+			if (response.isCommitted())
+				return null;
 			return ErrorHandler.getInstance().handle(e, log);
 		} finally {
 			if (wb != null)
 				wb.close();
+			if (upload != null)
+				upload.close();
 		}
 	}
 
@@ -179,56 +344,355 @@ public class XLSXController {
 	@ResponseBody
 	public ResponseEntity<?> extractDataToCsv(@ApiParam(value = "XLSX File") @RequestParam("file") MultipartFile file,
 			@ApiParam(value = "Sheet Name") @RequestParam(value = "sheetName", required = false) String sheetName,
-			@ApiParam(value = "Sheet Range like A1:D1 or A2:A10") @RequestParam(value = "sheetRange") String sheetRange,
+			@ApiParam(value = "Sheet Range like A1:D1, A2:A10, A:D, A1:A5,C1:C5 or a defined name") @RequestParam(value = "sheetRange") String sheetRange,
 			@ApiParam(value = "Orientation", allowableValues = "portrait,landscape") @RequestParam(value = "orientation", required = false, defaultValue = "portrait") String orientation,
-			@ApiParam(value = "Expected file name") @RequestParam(value = "filename", required = false) String filename
+			@ApiParam(value = "Date format, `excel` uses the number format of the cells", allowableValues = "excel,iso") @RequestParam(value = "dateFormat", required = false, defaultValue = "excel") String dateFormat,
+			@ApiParam(value = "Columns to keep in portrait mode, as letters or headers of the first row, like A,C or Name,City") @RequestParam(value = "columns", required = false) String columns,
+			@ApiParam(value = "Filters on the rows in portrait mode, like City:eq:Atlanta, Name:contains:smith or Age:gt:30 (eq, ne, contains, gt, ge, lt, le)") @RequestParam(value = "filter", required = false) List<String> filters,
+			@ApiParam(value = "Number of rows skipped after the start of the range in portrait mode") @RequestParam(value = "offset", required = false, defaultValue = "0") int offset,
+			@ApiParam(value = "Maximum number of rows in portrait mode, 0 for all") @RequestParam(value = "limit", required = false, defaultValue = "0") int limit,
+			@ApiParam(value = "Run in the background and return a job id") @RequestParam(value = "async", required = false, defaultValue = "false") boolean async,
+			@ApiParam(value = "Expected file name") @RequestParam(value = "filename", required = false) String filename,
+			HttpServletResponse response
 	) throws IOException {
 		Map<String, Object> log = new HashMap<String, Object>();
 		log.put(MessageHelper.CONST_METHOD, MessageHelper.METHOD_EXTRACTDATA_XLSX);
 		log.put(MessageHelper.CONST_FILENAME, file.getOriginalFilename());
 
-		Workbook wb = null;
+		SpooledUpload upload = null;
+		WorkbookHandle wb = null;
 
 		try {
 			if (!file.getOriginalFilename().toLowerCase().endsWith(".xlsx"))
 				throw new ServiceException("Only *.xlsx files are supported.");
 
-			wb = WorkbookFactory.create(file.getInputStream());
+			boolean isoDates = CellValueFormatter.isIso(dateFormat);
+			RowSelection selection = RowSelection.parse(columns, filters, offset, limit);
+			if (async) {
+				// Get filename
+				String fn = filename == null || filename.isEmpty() ? UUID.randomUUID().toString() + ".csv" : filename;
+				String headerValue = filename != null && !filename.isEmpty() ? "attachment; " : "";
+				headerValue += "filename=" + fn;
+
+				long size = file.getSize();
+				return JobController.submit(jobManager, file, "text/csv;charset=UTF-8", headerValue, (input, os) -> {
+					ConversionTimer timer = metrics.start("xlsx.extract.csv", size);
+					try (WorkbookHandle handle = workbookCache.open(input)) {
+						handle.setIsoDates(isoDates);
+						timer.stage("open");
+						RangeReference range = handle.resolveRange(sheetRange, orientation);
+						String s = getSheet(handle, sheetName, range);
+						timer.stage("lookup");
+						writeCsv(handle, s, range, selection, os, timer);
+					}
+					timer.finish();
+				});
+			}
 
-			// Get sheet
-			Sheet s = sheetName == null || sheetName.isEmpty() ? wb.getSheetAt(0) : wb.getSheet(sheetName);
+			ConversionTimer timer = metrics.start("xlsx.extract.csv", file.getSize());
+			upload = uploadSpooler.spool(file);
+			wb = workbookCache.open(upload.getSource());
+			wb.setIsoDates(isoDates);
+			timer.stage("open");
+			writeCsv(wb, sheetName, sheetRange, orientation, selection, filename, response, timer);
+			timer.finish();
 
-			if (s == null)
-				throw new ServiceException("The following sheet doesn't exist: " + sheetName);
+			return null;
+		} catch (Exception e) {
+			logger.error(e);
+			LoggerHelper.log(MessageHelper.METHOD_EXTRACTDATA_XLSX, log);
+
+			// Once the first rows have been sent, the error can't be reported to the client anymore
+			if (response.isCommitted())
+				return null;
+			return ErrorHandler.getInstance().handle(e, log);
+		} finally {
+			if (wb != null)
+				wb.close();
+			if (upload != null)
+				upload.close();
+		}
+	}
+
+	@RequestMapping(
+		value = "extract/batch",
+		method = RequestMethod.POST,
+		produces = { MediaType.APPLICATION_JSON_VALUE, "application/zip" }
+	)
+	@ApiOperation(
+		value = "Extract several ranges from XLSX",
+		notes = "Extract several ranges from XLSX, in parallel, to a single JSON document or to a zip of CSV files."
+	)
+	@ResponseBody
+	public ResponseEntity<?> extractBatch(@ApiParam(value = "XLSX File") @RequestParam("file") MultipartFile file,
+		@ApiParam(value = "JSON array of extractions like [{\"sheetName\": \"Sheet1\", \"sheetRange\": \"A1:D1\", \"orientation\": \"portrait\"}]") @RequestParam(value = "specs") String specs,
+		@ApiParam(value = "Format", allowableValues = "json,csv") @RequestParam(value = "format", required = false, defaultValue = "json") String format,
+		@ApiParam(value = "Date format, `excel` uses the number format of the cells", allowableValues = "excel,iso") @RequestParam(value = "dateFormat", required = false, defaultValue = "excel") String dateFormat,
+		@ApiParam(value = "Expected file name") @RequestParam(value = "filename", required = false) String filename,
+		HttpServletResponse response
+	) throws IOException {
+		Map<String, Object> log = new HashMap<String, Object>();
+		log.put(MessageHelper.CONST_METHOD, MessageHelper.METHOD_EXTRACTBATCH_XLSX);
+		log.put(MessageHelper.CONST_FILENAME, file.getOriginalFilename());
 
-			// Get data
-			JSONArray data = extractData(s, sheetRange == null ? "" : sheetRange, orientation == null || orientation.isEmpty() ? "portrait" : orientation);
-
-			// Get csv
-			StringBuilder csv = new StringBuilder();
-			for (int i = 0; i < data.length(); i++) {
-				JSONArray row = data.getJSONArray(i);
-				int nbOfColums = row.length();
-				for (int j = 0; j < nbOfColums; j++) {
-					String cell = row.getString(j);
-					csv.append("\"" + cell + "\"");
-					if (j < nbOfColums - 1) csv.append(',');
-				}
-				csv.append('\n');
+		SpooledUpload upload = null;
+		WorkbookHandle wb = null;
+		List<BatchExtraction> results = null;
+
+		try {
+			if (!file.getOriginalFilename().toLowerCase().endsWith(".xlsx"))
+				throw new ServiceException("Only *.xlsx files are supported.");
+
+			List<ExtractionSpec> extractions;
+			try {
+				extractions = new ObjectMapper().readValue(specs, new TypeReference<List<ExtractionSpec>>() {});
+			} catch (IOException e) {
+				throw new ServiceException("The extraction specs are not valid.");
 			}
+			if (extractions == null || extractions.isEmpty())
+				throw new ServiceException("At least one extraction is required.");
+
+			ConversionTimer timer = metrics.start("xlsx.extract.batch", file.getSize());
+			upload = uploadSpooler.spool(file);
+			wb = workbookCache.open(upload.getSource());
+			wb.setIsoDates(CellValueFormatter.isIso(dateFormat));
+			timer.stage("open");
+			results = batchExtractor.submit(wb, extractions);
+
+			if ("csv".equalsIgnoreCase(format))
+				writeBatchCsv(extractions, results, filename, response, timer);
+			else
+				writeBatchJson(extractions, results, filename, response, timer);
+			timer.stage("extract");
+			timer.finish();
+
+			return null;
+		} catch (Exception e) {
+			logger.error(e);
+			LoggerHelper.log(MessageHelper.METHOD_EXTRACTBATCH_XLSX, log);
 
-			// Get filename
-			String fn = filename == null || filename.isEmpty() ? UUID.randomUUID().toString() + ".csv" : filename;
-			String headerValue = filename != null && !filename.isEmpty() ? "attachment; " : "";
-			headerValue += "filename=" + fn;
+			// Once the first rows have been sent, the error can't be reported to the client anymore
+			if (response.isCommitted())
+				return null;
+			return ErrorHandler.getInstance().handle(e, log);
+		} finally {
+			// Stop the remaining extractions, and wait for the running ones before closing the workbook they read
+			if (results != null)
+				BatchExtractor.stop(results);
+			if (wb != null)
+				wb.close();
+			if (upload != null)
+				upload.close();
+		}
+	}
+
+	@RequestMapping(
+		value = "documents",
+		method = RequestMethod.POST,
+		produces = MediaType.APPLICATION_JSON_VALUE
+	)
+	@ApiOperation(
+		value = "Store a XLSX file",
+		notes = "Store a XLSX file and get its id, so that it can be queried several times without uploading it again."
+	)
+	@ResponseBody
+	public ResponseEntity<?> storeDocument(
+		@ApiParam(value = "XLSX File") @RequestParam("file") MultipartFile file
+	) throws IOException {
+		ObjectMapper mapper = new ObjectMapper();
+		Map<String, Object> log = new HashMap<String, Object>();
+		log.put(MessageHelper.CONST_METHOD, MessageHelper.METHOD_STOREDOCUMENT);
+		log.put(MessageHelper.CONST_FILENAME, file.getOriginalFilename());
+
+		try {
+			if (!file.getOriginalFilename().toLowerCase().endsWith(".xlsx"))
+				throw new ServiceException("Only *.xlsx files are supported.");
+
+			StoredDocument document = documentStore.store(file);
+
+			JSONObject result = new JSONObject();
+			result.put("id", document.getId());
+			result.put("filename", document.getFilename());
+			result.put("ttl", documentStore.getTtl());
 
-			return ResponseEntity.status(HttpStatus.OK).header(
-					"Content-Disposition", headerValue
-			).body(csv);
+			return ResponseEntity.status(HttpStatus.CREATED).body(mapper.readTree(result.toString()));
+		} catch (Exception e) {
+			logger.error(e);
+			LoggerHelper.log(MessageHelper.METHOD_STOREDOCUMENT, log);
+
+			return ErrorHandler.getInstance().handle(e, log);
+		}
+	}
+
+	@RequestMapping(
+		value = "documents/{id}",
+		method = RequestMethod.DELETE,
+		produces = MediaType.APPLICATION_JSON_VALUE
+	)
+	@ApiOperation(
+		value = "Delete a stored XLSX file",
+		notes = "Delete a stored XLSX file before its expiration."
+	)
+	@ResponseBody
+	public ResponseEntity<?> deleteDocument(
+		@ApiParam(value = "Document id") @PathVariable(value = "id") String id
+	) throws IOException {
+		ObjectMapper mapper = new ObjectMapper();
+		Map<String, Object> log = new HashMap<String, Object>();
+		log.put(MessageHelper.CONST_METHOD, MessageHelper.METHOD_DELETEDOCUMENT);
+		log.put(MessageHelper.CONST_ID, id);
+
+		try {
+			documentStore.delete(id);
+
+			JSONObject result = new JSONObject();
+			result.put("id", id);
+			result.put("deleted", true);
+
+			return ResponseEntity.status(HttpStatus.OK).body(mapper.readTree(result.toString()));
+		} catch (Exception e) {
+			logger.error(e);
+			LoggerHelper.log(MessageHelper.METHOD_DELETEDOCUMENT, log);
+
+			return ErrorHandler.getInstance().handle(e, log);
+		}
+	}
+
+	@RequestMapping(
+		value = "documents/{id}/sheets",
+		method = RequestMethod.GET,
+		produces = MediaType.APPLICATION_JSON_VALUE
+	)
+	@ApiOperation(
+		value = "Get the list of sheets of a stored XLSX file",
+		notes = "Get the list of sheets of a stored XLSX file."
+	)
+	@ResponseBody
+	public ResponseEntity<?> getDocumentSheets(
+		@ApiParam(value = "Document id") @PathVariable(value = "id") String id,
+		@ApiParam(value = "Include the used range of each sheet") @RequestParam(value = "dimensions", required = false, defaultValue = "false") boolean dimensions
+	) throws IOException {
+		ObjectMapper mapper = new ObjectMapper();
+		Map<String, Object> log = new HashMap<String, Object>();
+		log.put(MessageHelper.CONST_METHOD, MessageHelper.METHOD_GETSHEETS);
+		log.put(MessageHelper.CONST_ID, id);
+
+		WorkbookHandle wb = null;
+
+		try {
+			wb = documentStore.open(id);
+
+			return ResponseEntity.status(HttpStatus.OK).body(mapper.readTree(sheetsToJson(wb, dimensions).toString()));
+		} catch (Exception e) {
+			logger.error(e);
+			LoggerHelper.log(MessageHelper.METHOD_GETSHEETS, log);
+
+			return ErrorHandler.getInstance().handle(e, log);
+		} finally {
+			if (wb != null)
+				wb.close();
+		}
+	}
+
+	@RequestMapping(
+		value = "documents/{id}/extract/json",
+		method = RequestMethod.GET,
+		produces = MediaType.APPLICATION_JSON_VALUE
+	)
+	@ApiOperation(
+		value = "Extract data from a stored XLSX to JSON",
+		notes = "Extract data from a stored XLSX to JSON"
+	)
+	@ResponseBody
+	public ResponseEntity<?> extractDocumentToJson(
+		@ApiParam(value = "Document id") @PathVariable(value = "id") String id,
+		@ApiParam(value = "Sheet Name") @RequestParam(value = "sheetName", required = false) String sheetName,
+		@ApiParam(value = "Sheet Range like A1:D1, A2:A10, A:D, A1:A5,C1:C5 or a defined name") @RequestParam(value = "sheetRange") String sheetRange,
+		@ApiParam(value = "Orientation", allowableValues = "portrait,landscape") @RequestParam(value = "orientation", required = false, defaultValue = "portrait") String orientation,
+		@ApiParam(value = "Date format, `excel` uses the number format of the cells", allowableValues = "excel,iso") @RequestParam(value = "dateFormat", required = false, defaultValue = "excel") String dateFormat,
+		@ApiParam(value = "Columns to keep in portrait mode, as letters or headers of the first row, like A,C or Name,City") @RequestParam(value = "columns", required = false) String columns,
+		@ApiParam(value = "Filters on the rows in portrait mode, like City:eq:Atlanta, Name:contains:smith or Age:gt:30 (eq, ne, contains, gt, ge, lt, le)") @RequestParam(value = "filter", required = false) List<String> filters,
+		@ApiParam(value = "Number of rows skipped after the start of the range in portrait mode") @RequestParam(value = "offset", required = false, defaultValue = "0") int offset,
+		@ApiParam(value = "Maximum number of rows in portrait mode, 0 for all") @RequestParam(value = "limit", required = false, defaultValue = "0") int limit,
+		@ApiParam(value = "Expected file name") @RequestParam(value = "filename", required = false) String filename,
+		HttpServletResponse response
+	) throws IOException {
+		Map<String, Object> log = new HashMap<String, Object>();
+		log.put(MessageHelper.CONST_METHOD, MessageHelper.METHOD_EXTRACTDATA_XLSX);
+		log.put(MessageHelper.CONST_ID, id);
+
+		WorkbookHandle wb = null;
+
+		try {
+			RowSelection selection = RowSelection.parse(columns, filters, offset, limit);
+			ConversionTimer timer = metrics.start("xlsx.documents.extract.json", documentStore.get(id).getFile().length());
+			wb = documentStore.open(id);
+			wb.setIsoDates(CellValueFormatter.isIso(dateFormat));
+			timer.stage("open");
+			writeJson(wb, sheetName, sheetRange, orientation, selection, filename, response, timer);
+			timer.finish();
+
+			return null;
+		} catch (Exception e) {
+			logger.error(e);
+			LoggerHelper.log(MessageHelper.METHOD_EXTRACTDATA_XLSX, log);
+
+			// Once the first rows have been sent, the error can't be reported to the client anymore
+			if (response.isCommitted())
+				return null;
+			return ErrorHandler.getInstance().handle(e, log);
+		} finally {
+			if (wb != null)
+				wb.close();
+		}
+	}
+
+	@RequestMapping(
+		value = "documents/{id}/extract/csv",
+		method = RequestMethod.GET,
+		produces = "text/csv"
+	)
+	@ApiOperation(
+		value = "Extract data from a stored XLSX to CSV",
+		notes = "Extract data from a stored XLSX to CSV"
+	)
+	@ResponseBody
+	public ResponseEntity<?> extractDocumentToCsv(
+		@ApiParam(value = "Document id") @PathVariable(value = "id") String id,
+		@ApiParam(value = "Sheet Name") @RequestParam(value = "sheetName", required = false) String sheetName,
+		@ApiParam(value = "Sheet Range like A1:D1, A2:A10, A:D, A1:A5,C1:C5 or a defined name") @RequestParam(value = "sheetRange") String sheetRange,
+		@ApiParam(value = "Orientation", allowableValues = "portrait,landscape") @RequestParam(value = "orientation", required = false, defaultValue = "portrait") String orientation,
+		@ApiParam(value = "Date format, `excel` uses the number format of the cells", allowableValues = "excel,iso") @RequestParam(value = "dateFormat", required = false, defaultValue = "excel") String dateFormat,
+		@ApiParam(value = "Columns to keep in portrait mode, as letters or headers of the first row, like A,C or Name,City") @RequestParam(value = "columns", required = false) String columns,
+		@ApiParam(value = "Filters on the rows in portrait mode, like City:eq:Atlanta, Name:contains:smith or Age:gt:30 (eq, ne, contains, gt, ge, lt, le)") @RequestParam(value = "filter", required = false) List<String> filters,
+		@ApiParam(value = "Number of rows skipped after the start of the range in portrait mode") @RequestParam(value = "offset", required = false, defaultValue = "0") int offset,
+		@ApiParam(value = "Maximum number of rows in portrait mode, 0 for all") @RequestParam(value = "limit", required = false, defaultValue = "0") int limit,
+		@ApiParam(value = "Expected file name") @RequestParam(value = "filename", required = false) String filename,
+		HttpServletResponse response
+	) throws IOException {
+		Map<String, Object> log = new HashMap<String, Object>();
+		log.put(MessageHelper.CONST_METHOD, MessageHelper.METHOD_EXTRACTDATA_XLSX);
+		log.put(MessageHelper.CONST_ID, id);
+
+		WorkbookHandle wb = null;
+
+		try {
+			RowSelection selection = RowSelection.parse(columns, filters, offset, limit);
+			ConversionTimer timer = metrics.start("xlsx.documents.extract.csv", documentStore.get(id).getFile().length());
+			wb = documentStore.open(id);
+			wb.setIsoDates(CellValueFormatter.isIso(dateFormat));
+			timer.stage("open");
+			writeCsv(wb, sheetName, sheetRange, orientation, selection, filename, response, timer);
+			timer.finish();
+
+			return null;
 		} catch (Exception e) {
 			logger.error(e);
 			LoggerHelper.log(MessageHelper.METHOD_EXTRACTDATA_XLSX, log);
 
+			// Once the first rows have been sent, the error can't be reported to the client anymore
+			if (response.isCommitted())
+				return null;
 			return ErrorHandler.getInstance().handle(e, log);
 		} finally {
 			if (wb != null)
@@ -248,200 +712,229 @@ public class XLSXController {
 	@ResponseBody
 	public ResponseEntity<?> convertCSVToXLSX(
 		@ApiParam(value = "CSV File") @RequestParam("file") MultipartFile file,
-		@ApiParam(value = "Expected file name") @RequestParam(value = "filename", required = false) String filename
+		@ApiParam(value = "Charset of the CSV file") @RequestParam(value = "charset", required = false, defaultValue = "UTF-8") String charset,
+		@ApiParam(value = "Write numbers, booleans and ISO-8601 dates as typed cells, based on the first rows") @RequestParam(value = "inferTypes", required = false, defaultValue = "false") boolean inferTypes,
+		@ApiParam(value = "Expected file name") @RequestParam(value = "filename", required = false) String filename,
+		@ApiParam(value = "Run in the background and return a job id") @RequestParam(value = "async", required = false, defaultValue = "false") boolean async,
+		HttpServletResponse response
 	) throws IOException {
 		Map<String, Object> log = new HashMap<String, Object>();
 		log.put(MessageHelper.CONST_METHOD, MessageHelper.METHOD_CONVERTCSVTOXLSX);
 		log.put(MessageHelper.CONST_FILENAME, file.getOriginalFilename());
 
-		Workbook wb = null;
+		SXSSFWorkbook wb = null;
 
 		try {
 			if (!file.getOriginalFilename().toLowerCase().endsWith(".csv"))
 				throw new ServiceException("Only *.csv files are supported.");
 
-			wb = new SXSSFWorkbook();
-			Sheet s = wb.createSheet(FilenameUtils.getBaseName(file.getOriginalFilename()));
-
-			int rowNum = 0;
-			BufferedReader br = new BufferedReader(new InputStreamReader(file.getInputStream()));
-			Iterable<CSVRecord> records = CSVFormat.EXCEL.parse(br);
-			for (CSVRecord record : records) {
-				Row currentRow = s.createRow(rowNum);
-				for( int i = 0; i < record.size(); i ++ ) {
-					currentRow.createCell(i).setCellValue(record.get(i));
-				}
-				rowNum++;
-			}
+			String sheetName = FilenameUtils.getBaseName(file.getOriginalFilename());
+			Charset cs = CsvConverter.charsetOf(charset);
 
 			// Get filename
-			String fn = filename == null || filename.isEmpty() ? FilenameUtils.getBaseName(file.getOriginalFilename()) + ".xlsx" : filename;
+			String fn = filename == null || filename.isEmpty() ? sheetName + ".xlsx" : filename;
 			String headerValue = filename != null && !filename.isEmpty() ? "attachment; " : "";
 			headerValue += "filename=" + fn;
 
-			ByteArrayOutputStream bos = new ByteArrayOutputStream();
-			try {
-				wb.write(bos);
-				return ResponseEntity.status(HttpStatus.OK).header(
-						"Content-Disposition", headerValue
-						).body(bos.toByteArray());
-			} finally {
-				bos.close();
-				wb.close();
+			if (async) {
+				long size = file.getSize();
+				return JobController.submit(jobManager, file, XLSX_CONTENT_TYPE, headerValue, (input, os) -> {
+					ConversionTimer timer = metrics.start("xlsx.from.csv", size);
+					SXSSFWorkbook xlsx;
+					// The converter doesn't close the stream
+					try (InputStream is = input.getInputStream()) {
+						xlsx = csvConverter.convert(is, cs, sheetName, inferTypes, timer);
+					}
+					try {
+						timer.stage("parse");
+						xlsx.write(os);
+						timer.stage("write");
+					} finally {
+						CsvConverter.close(xlsx);
+					}
+					timer.finish();
+				});
+			}
+
+			ConversionTimer timer = metrics.start("xlsx.from.csv", file.getSize());
+			try (InputStream is = file.getInputStream()) {
+				wb = csvConverter.convert(is, cs, sheetName, inferTypes, timer);
 			}
+			timer.stage("parse");
 
+			// Zip the workbook straight into the response
+			response.setStatus(HttpStatus.OK.value());
+			response.setContentType(XLSX_CONTENT_TYPE);
+			response.setHeader("Content-Disposition", headerValue);
+			wb.write(response.getOutputStream());
+			timer.stage("write");
+			timer.finish();
+
+			return null;
 		} catch (Exception e) {
 			logger.error(e);
 			LoggerHelper.log(MessageHelper.METHOD_CONVERTCSVTOXLSX, log);
 
+			// Once the first bytes have been sent, the error can't be reported to the client anymore
+			if (response.isCommitted())
+				return null;
 			return ErrorHandler.getInstance().handle(e, log);
 		} finally {
 			if (wb != null)
-				wb.close();
+				CsvConverter.close(wb);
 		}
 	}
 
-	private JSONArray extractData(
-		Sheet s, String range,
-		String orientation
-	) throws ServiceException {
-		// Check the range syntax
-		Regex regex = new Regex("[A-Z]+\\d+:[A-Z]+\\d+");
-		if (regex.matchEntire(range) == null)
-			throw new ServiceException("The sheet range expression is not valid.");
-
-		// Get row and cols indexes
-		int startCol = index(new Regex("[A-Z]+").find(range, 0).getGroupValues().get(0)) - 1;
-		int endCol = index(new Regex("[A-Z]+").find(range, range.indexOf(":")).getGroupValues().get(0)) - 1;
-		int startRow = Integer.parseInt(new Regex("\\d+").find(range, 0).getGroupValues().get(0)) - 1;
-		int endRow = Integer.parseInt(new Regex("\\d+").find(range, range.indexOf(":")).getGroupValues().get(0)) - 1;
-
-		if (endCol < startCol)
-			throw new ServiceException("The end column needs to be after the start column.");
-		if (endRow < startRow)
-			throw new ServiceException("The end column needs to be after the start column.");
-		if (orientation.toLowerCase().equals("portrait") && startRow != endRow)
-			throw new ServiceException("If the mode `portrait` is selected, the start and end rows must be the same.");
-		if (orientation.toLowerCase().equals("landscape") && startCol != endCol)
-			throw new ServiceException("If the mode `landscape` is selected, the start and end columns must be the same.");
-
+	private JSONObject sheetsToJson(WorkbookHandle wb, boolean dimensions) throws Exception {
+		// Build the JSON
 		JSONArray arr = new JSONArray();
-
-		if (orientation.toLowerCase().equals("portrait")) {
-			boolean c = true;
-			int rowIdx = startRow;
-			while (c) {
-				Row r = s.getRow(rowIdx);
-				if (r != null) {
-					JSONArray row = new JSONArray();
-					for (int colIdx = startCol; colIdx <= endCol; colIdx++)
-						row.put(cellToStr(r.getCell(colIdx)));
-
-					boolean emptyLine = true;
-					for (int i = 0; i < row.length(); i++) {
-						Object value = row.get(i);
-						emptyLine = emptyLine && (value == null || (value instanceof String && ((String) value).isEmpty()));
-					}
-					c = !emptyLine;
-					if (c)
-						arr.put(row);
-					rowIdx++;
-				} else
-					c = false;
-			}
-		} else {
-			boolean c = true;
-
-			// First, we need to look for the column where all rows are blank
-			int colIdxMax = startCol;
-			while (c) {
-				Set<String> values = new HashSet<String>();
-				for (int rowIdx = startRow; rowIdx <= endRow; rowIdx++) {
-					Row r = s.getRow(rowIdx);
-					if (r != null)
-						values.add(cellToStr(r.getCell(colIdxMax)));
-					else
-						values.add("");
-				}
-				boolean emptyCol = true;
-				for (String value : values)
-					emptyCol = emptyCol && value.isEmpty();
-				c = !emptyCol;
-				if (c)
-					colIdxMax++;
-			}
-			colIdxMax--;
-
-			// Then extract
-			for (int rowIdx = startRow; rowIdx <= endRow; rowIdx++) {
-				Row r = s.getRow(rowIdx);
-				JSONArray row = new JSONArray();
-				for (int colIdx = startCol; colIdx <= colIdxMax; colIdx++) {
-					if (r != null)
-						row.put(cellToStr(r.getCell(colIdx)));
-					else
-						row.put("");
-				}
-				arr.put(row);
-			}
+		List<SheetInfo> sheets = wb.getSheets(dimensions);
+		for (int i = 0; i < sheets.size(); i++) {
+			JSONObject obj = new JSONObject();
+			obj.put("name", sheets.get(i).getName());
+			obj.put("index", i);
+			if (dimensions)
+				obj.put("dimension", sheets.get(i).getDimension() == null ? JSONObject.NULL : sheets.get(i).getDimension());
+			arr.put(obj);
 		}
-		return arr;
+
+		JSONObject result = new JSONObject();
+		result.put("items", arr);
+		result.put("total", arr.length());
+		return result;
 	}
 
-	private int index(String letterIndex) {
-		if (letterIndex == null || letterIndex.isEmpty())
-			return 0;
-		else {
-			int index = 0;
-			int position = 1;
-			for (int i = 0; i < letterIndex.length(); i ++) {
-				char letter = letterIndex.charAt(i);
-				index += ((int) letter - (int)'A' + 1) * Math.pow(26.0, letterIndex.length() - (double)(position));
-				position++;
-			}
-			return index;
-		}
+	private String getSheet(WorkbookHandle wb, String sheetName, RangeReference range) throws Exception {
+		String s = wb.findSheet(sheetName, range);
+
+		if (s == null)
+			throw new ServiceException("The following sheet doesn't exist: " + sheetName);
+		return s;
 	}
 
-	private String cellToStr(Cell cell) {
-		if (cell == null)
-			return "";
-		else {
-			switch (cell.getCellTypeEnum()) {
-				case NUMERIC :
-					if (HSSFDateUtil.isCellDateFormatted(cell))
-						return dateCellToStr(cell);
-					else
-						return Double.toString(cell.getNumericCellValue());
-				case BOOLEAN:
-					return Boolean.toString(cell.getBooleanCellValue());
-				case STRING:
-					return cell.getStringCellValue();
-				case FORMULA:
-					switch (cell.getCachedFormulaResultTypeEnum()) {
-						case NUMERIC :
-							if (HSSFDateUtil.isCellDateFormatted(cell))
-								return dateCellToStr(cell);
-							else
-								return Double.toString(cell.getNumericCellValue());
-						case BOOLEAN:
-							return Boolean.toString(cell.getBooleanCellValue());
-						case STRING:
-							return cell.getStringCellValue();
-						default:
-							return "";
-					}
-				default:
-					return "";
-			}
-		}
+	private void writeJson(
+		WorkbookHandle wb, String sheetName,
+		String sheetRange, String orientation, RowSelection selection,
+		String filename, HttpServletResponse response, ConversionTimer timer
+	) throws Exception {
+		// Get range and sheet
+		RangeReference range = wb.resolveRange(sheetRange, orientation);
+		String s = getSheet(wb, sheetName, range);
+		timer.stage("lookup");
+
+		// Get filename
+		String fn = filename == null || filename.isEmpty() ? UUID.randomUUID().toString() + ".json" : filename;
+		String headerValue = filename != null && !filename.isEmpty() ? "attachment; " : "";
+		headerValue += "filename=" + fn;
+
+		response.setStatus(HttpStatus.OK.value());
+		response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+		response.setHeader("Content-Disposition", headerValue);
+		writeJson(wb, s, range, selection, response.getOutputStream(), timer);
+	}
+
+	private static void writeJson(WorkbookHandle wb, String sheetName, RangeReference range, RowSelection selection, OutputStream os, ConversionTimer timer) throws Exception {
+		// Write the items as they are read from the sheet, `rows` and `cols` come last
+		JsonRowWriter writer = new JsonRowWriter(JSON_FACTORY.createGenerator(os, JsonEncoding.UTF8));
+		writer.start();
+		wb.extract(sheetName, range, selection, timer.count(writer));
+		writer.end();
+		// Reading, serializing and writing are interleaved, they are timed together
+		timer.stage("extract");
+	}
+
+	private void writeCsv(
+		WorkbookHandle wb, String sheetName,
+		String sheetRange, String orientation, RowSelection selection,
+		String filename, HttpServletResponse response, ConversionTimer timer
+	) throws Exception {
+		// Get range and sheet
+		RangeReference range = wb.resolveRange(sheetRange, orientation);
+		String s = getSheet(wb, sheetName, range);
+		timer.stage("lookup");
+
+		// Get filename
+		String fn = filename == null || filename.isEmpty() ? UUID.randomUUID().toString() + ".csv" : filename;
+		String headerValue = filename != null && !filename.isEmpty() ? "attachment; " : "";
+		headerValue += "filename=" + fn;
+
+		response.setStatus(HttpStatus.OK.value());
+		response.setContentType("text/csv;charset=UTF-8");
+		response.setHeader("Content-Disposition", headerValue);
+		writeCsv(wb, s, range, selection, response.getOutputStream(), timer);
+	}
+
+	private static void writeCsv(WorkbookHandle wb, String sheetName, RangeReference range, RowSelection selection, OutputStream os, ConversionTimer timer) throws Exception {
+		// Write the rows as they are read from the sheet
+		CSVPrinter printer = new CSVPrinter(new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8)), CSV_FORMAT);
+		wb.extract(sheetName, range, selection, timer.count(values -> printer.printRecord((Object[]) values)));
+		printer.flush();
+		timer.stage("extract");
 	}
 
-	private String dateCellToStr(Cell c) {
-		Date date = HSSFDateUtil.getJavaDate(c.getNumericCellValue());
-		String dateFmt = c.getCellStyle().getDataFormatString();
-		return new CellDateFormatter(dateFmt).format(date);
+	private void writeBatchJson(
+		List<ExtractionSpec> extractions, List<BatchExtraction> results,
+		String filename, HttpServletResponse response, ConversionTimer timer
+	) throws Exception {
+		// Get filename
+		String fn = filename == null || filename.isEmpty() ? UUID.randomUUID().toString() + ".json" : filename;
+		String headerValue = filename != null && !filename.isEmpty() ? "attachment; " : "";
+		headerValue += "filename=" + fn;
+
+		// Each extraction is written as soon as it and the previous ones are done
+		response.setStatus(HttpStatus.OK.value());
+		response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+		response.setHeader("Content-Disposition", headerValue);
+		JsonGenerator generator = JSON_FACTORY.createGenerator(response.getOutputStream(), JsonEncoding.UTF8);
+		generator.writeStartObject();
+		generator.writeArrayFieldStart("items");
+		for (int i = 0; i < extractions.size(); i++) {
+			ExtractionSpec spec = extractions.get(i);
+			Map<String, String> fields = new LinkedHashMap<>();
+			fields.put("sheetName", spec.getSheetName());
+			fields.put("sheetRange", spec.getSheetRange());
+			fields.put("orientation", spec.getOrientation());
+
+			JsonRowWriter writer = new JsonRowWriter(generator);
+			SheetRowHandler handler = timer.count(writer);
+			writer.start(fields);
+			results.get(i).forEach(handler);
+			writer.end();
+		}
+		generator.writeEndArray();
+		generator.writeNumberField("total", extractions.size());
+		generator.writeEndObject();
+		generator.flush();
 	}
 
+	private void writeBatchCsv(
+		List<ExtractionSpec> extractions, List<BatchExtraction> results,
+		String filename, HttpServletResponse response, ConversionTimer timer
+	) throws Exception {
+		// Get filename
+		String fn = filename == null || filename.isEmpty() ? UUID.randomUUID().toString() + ".zip" : filename;
+		String headerValue = filename != null && !filename.isEmpty() ? "attachment; " : "";
+		headerValue += "filename=" + fn;
+
+		// One CSV file per extraction
+		response.setStatus(HttpStatus.OK.value());
+		response.setContentType("application/zip");
+		response.setHeader("Content-Disposition", headerValue);
+		ZipOutputStream zos = new ZipOutputStream(response.getOutputStream());
+		for (int i = 0; i < extractions.size(); i++) {
+			ExtractionSpec spec = extractions.get(i);
+			String name = spec.getSheetName() == null || spec.getSheetName().isEmpty() ? "sheet" : spec.getSheetName();
+			zos.putNextEntry(new ZipEntry((i + 1) + "-" + name.replaceAll("[^A-Za-z0-9._-]", "_") + ".csv"));
+
+			CSVPrinter printer = new CSVPrinter(new BufferedWriter(new OutputStreamWriter(zos, StandardCharsets.UTF_8)), CSV_FORMAT);
+			results.get(i).forEach(row -> {
+				printer.printRecord((Object[]) row);
+				timer.count(1, row.length);
+			});
+			printer.flush();
+			zos.closeEntry();
+		}
+		zos.finish();
+	}
 
 }
\ No newline at end of file
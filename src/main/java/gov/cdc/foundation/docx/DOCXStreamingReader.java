@@ -0,0 +1,134 @@
+package gov.cdc.foundation.docx;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.openxml4j.opc.TargetMode;
+import org.apache.poi.util.SAXHelper;
+import org.apache.poi.xwpf.usermodel.XWPFRelation;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import gov.cdc.foundation.helper.StopReadingException;
+import gov.cdc.helper.common.ServiceException;
+
+/**
+ * Event-model (SAX) reader for DOCX files: the headers, the body and the footers are read one paragraph at a time.
+ * Only the heading levels of the styles are kept in memory.
+ */
+public class DOCXStreamingReader implements Closeable {
+
+	private final OPCPackage pkg;
+	private final PackagePart document;
+	private StyleIndex styles;
+
+	public DOCXStreamingReader(InputStream is) throws IOException, OpenXML4JException, ServiceException {
+		this(OPCPackage.open(is));
+	}
+
+	/**
+	 * Opens the package read-only from a file: the parts are only inflated when they are read.
+	 */
+	public DOCXStreamingReader(File file) throws IOException, OpenXML4JException, ServiceException {
+		this(OPCPackage.open(file, PackageAccess.READ));
+	}
+
+	private DOCXStreamingReader(OPCPackage pkg) throws OpenXML4JException, ServiceException {
+		this.pkg = pkg;
+		PackageRelationshipCollection rels = pkg.getRelationshipsByType(PackageRelationshipTypes.CORE_DOCUMENT);
+		if (rels.size() == 0)
+			rels = pkg.getRelationshipsByType(PackageRelationshipTypes.STRICT_CORE_DOCUMENT);
+		if (rels.size() == 0) {
+			pkg.revert();
+			throw new ServiceException("The file is not a valid DOCX file.");
+		}
+		document = pkg.getPart(rels.getRelationship(0));
+	}
+
+	/**
+	 * Opens a `FileSystemResource` from its file, and any other source from its stream.
+	 */
+	public static DOCXStreamingReader open(InputStreamSource source) throws IOException, OpenXML4JException, ServiceException {
+		if (source instanceof FileSystemResource)
+			return new DOCXStreamingReader(((FileSystemResource) source).getFile());
+		return new DOCXStreamingReader(source.getInputStream());
+	}
+
+	/**
+	 * Reads the headers, then the body and then the footers, depending on the options.
+	 * A listener throwing `StopReadingException` ends the reading, without the end of the current part.
+	 */
+	public void read(DocumentEventListener listener, DocumentOptions options) throws IOException, SAXException, OpenXML4JException {
+		try {
+			if (options.isHeaders())
+				readRelated("headers", XWPFRelation.HEADER.getRelation(), listener, options);
+			listener.startPart("body");
+			parse(document, listener, options);
+			listener.endPart();
+			if (options.isFooters())
+				readRelated("footers", XWPFRelation.FOOTER.getRelation(), listener, options);
+		} catch (StopReadingException e) {
+			// The listener has all the paragraphs it needs
+		} catch (SAXException e) {
+			// Errors from the listener are wrapped to get through the SAX parser
+			if (e.getException() instanceof IOException)
+				throw (IOException) e.getException();
+			throw e;
+		}
+	}
+
+	private void readRelated(String name, String relationType, DocumentEventListener listener, DocumentOptions options) throws IOException, SAXException, OpenXML4JException {
+		listener.startPart(name);
+		for (PackageRelationship rel : document.getRelationshipsByType(relationType)) {
+			if (rel.getTargetMode() == TargetMode.INTERNAL)
+				parse(document.getRelatedPart(rel), listener, options);
+		}
+		listener.endPart();
+	}
+
+	private synchronized StyleIndex getStyles() throws IOException, SAXException, OpenXML4JException {
+		if (styles == null) {
+			styles = StyleIndex.EMPTY;
+			for (PackageRelationship rel : document.getRelationshipsByType(XWPFRelation.STYLES.getRelation())) {
+				try (InputStream is = document.getRelatedPart(rel).getInputStream()) {
+					styles = StyleIndex.read(is);
+				}
+			}
+		}
+		return styles;
+	}
+
+	private void parse(PackagePart part, DocumentEventListener listener, DocumentOptions options) throws IOException, SAXException, OpenXML4JException {
+		XMLReader parser;
+		try {
+			parser = SAXHelper.newXMLReader();
+		} catch (ParserConfigurationException e) {
+			throw new SAXException(e);
+		}
+		parser.setContentHandler(new DocumentContentHandler(listener, options, getStyles()));
+
+		try (InputStream is = part.getInputStream()) {
+			parser.parse(new InputSource(is));
+		}
+	}
+
+	@Override
+	public void close() {
+		pkg.revert();
+	}
+
+}
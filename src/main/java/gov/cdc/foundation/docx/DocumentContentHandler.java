@@ -0,0 +1,144 @@
+package gov.cdc.foundation.docx;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * SAX handler for the body, a header or a footer of a document.
+ * Only the text of the current paragraph is buffered, and only if the options need it.
+ */
+public class DocumentContentHandler extends DefaultHandler {
+
+	private static final String W_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+
+	private final DocumentEventListener listener;
+	private final DocumentOptions options;
+	private final StyleIndex styles;
+
+	// Depth of the element being skipped, 0 when nothing is skipped
+	private int skipped;
+	private int tableDepth;
+	private int runDepth;
+	private boolean inText;
+	private boolean inParagraphProperties;
+	private boolean wanted;
+
+	private String style;
+	private String outlineLevel;
+	private String listId;
+	private int listLevel;
+	private final StringBuilder text = new StringBuilder();
+
+	public DocumentContentHandler(DocumentEventListener listener, DocumentOptions options, StyleIndex styles) {
+		this.listener = listener;
+		this.options = options;
+		this.styles = styles;
+	}
+
+	@Override
+	public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+		if (skipped > 0) {
+			skipped++;
+			return;
+		}
+
+		// The fallback of alternate content and the text boxes would duplicate or interleave text,
+		// and the tracked changes of the properties describe the previous version
+		if ("Fallback".equals(localName) || "txbxContent".equals(localName) || "pPrChange".equals(localName) || ("tbl".equals(localName) && !options.isTables())) {
+			skipped = 1;
+			return;
+		}
+
+		if (!W_NS.equals(uri))
+			return;
+
+		if ("p".equals(localName)) {
+			style = null;
+			outlineLevel = null;
+			listId = null;
+			listLevel = 0;
+			text.setLength(0);
+			wanted = tableDepth > 0 || (options.isParagraphs() && !options.isHeadingsOnly());
+		} else if ("pPr".equals(localName))
+			inParagraphProperties = true;
+		else if (inParagraphProperties) {
+			if ("pStyle".equals(localName))
+				style = attributes.getValue(W_NS, "val");
+			else if ("outlineLvl".equals(localName))
+				outlineLevel = attributes.getValue(W_NS, "val");
+			else if ("numId".equals(localName))
+				listId = attributes.getValue(W_NS, "val");
+			else if ("ilvl".equals(localName))
+				listLevel = parseInt(attributes.getValue(W_NS, "val"));
+		} else if ("r".equals(localName))
+			runDepth++;
+		else if (runDepth > 0) {
+			if (!wanted)
+				return;
+			if ("t".equals(localName))
+				inText = true;
+			else if ("tab".equals(localName))
+				text.append('\t');
+			else if ("br".equals(localName) || "cr".equals(localName))
+				text.append('\n');
+		} else if ("tbl".equals(localName)) {
+			tableDepth++;
+			listener.startTable();
+		} else if ("tr".equals(localName))
+			listener.startRow();
+		else if ("tc".equals(localName))
+			listener.startCell();
+	}
+
+	@Override
+	public void endElement(String uri, String localName, String qName) throws SAXException {
+		if (skipped > 0) {
+			skipped--;
+			return;
+		}
+
+		if (!W_NS.equals(uri))
+			return;
+
+		if ("t".equals(localName))
+			inText = false;
+		else if ("pPr".equals(localName)) {
+			inParagraphProperties = false;
+			// The heading level is known once the properties have been read
+			if (tableDepth == 0 && options.isParagraphs() && options.isHeadingsOnly())
+				wanted = getHeadingLevel() > 0;
+		} else if ("r".equals(localName))
+			runDepth--;
+		else if ("p".equals(localName)) {
+			if (wanted)
+				listener.paragraph(new Paragraph(style, getHeadingLevel(), listId, listLevel, text.toString()));
+		} else if ("tc".equals(localName))
+			listener.endCell();
+		else if ("tr".equals(localName))
+			listener.endRow();
+		else if ("tbl".equals(localName)) {
+			tableDepth--;
+			listener.endTable();
+		}
+	}
+
+	@Override
+	public void characters(char[] ch, int start, int length) {
+		if (inText && skipped == 0)
+			text.append(ch, start, length);
+	}
+
+	private int getHeadingLevel() {
+		return outlineLevel != null ? StyleIndex.toHeadingLevel(outlineLevel) : styles.getHeadingLevel(style);
+	}
+
+	private static int parseInt(String value) {
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+}
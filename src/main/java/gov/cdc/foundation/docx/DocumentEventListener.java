@@ -0,0 +1,34 @@
+package gov.cdc.foundation.docx;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Receives the paragraphs and tables of a document in document order.
+ */
+public interface DocumentEventListener {
+
+	/**
+	 * Called before the `headers`, the `body` and the `footers` of the document.
+	 */
+	void startPart(String name) throws SAXException;
+
+	void endPart() throws SAXException;
+
+	/**
+	 * Called at the end of each paragraph.
+	 */
+	void paragraph(Paragraph paragraph) throws SAXException;
+
+	void startTable() throws SAXException;
+
+	void startRow() throws SAXException;
+
+	void startCell() throws SAXException;
+
+	void endCell() throws SAXException;
+
+	void endRow() throws SAXException;
+
+	void endTable() throws SAXException;
+
+}
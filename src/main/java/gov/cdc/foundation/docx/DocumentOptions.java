@@ -0,0 +1,81 @@
+package gov.cdc.foundation.docx;
+
+import gov.cdc.helper.common.ServiceException;
+
+/**
+ * Parts of the document to extract. Everything is extracted by default.
+ */
+public class DocumentOptions {
+
+	private boolean paragraphs = true;
+	private boolean headingsOnly;
+	private boolean tables = true;
+	private boolean headers = true;
+	private boolean footers = true;
+
+	/**
+	 * Options for `all` the parts, only the `tables` or only the `headings`.
+	 */
+	public static DocumentOptions forParts(String parts) throws ServiceException {
+		if (parts == null || parts.isEmpty() || "all".equalsIgnoreCase(parts))
+			return new DocumentOptions();
+		else if ("tables".equalsIgnoreCase(parts))
+			return new DocumentOptions().setParagraphs(false);
+		else if ("headings".equalsIgnoreCase(parts))
+			return new DocumentOptions().setHeadingsOnly(true).setTables(false);
+		else
+			throw new ServiceException("The parts must be `all`, `tables` or `headings`.");
+	}
+
+	/**
+	 * Whether the paragraphs outside of the tables are extracted.
+	 */
+	public boolean isParagraphs() {
+		return paragraphs;
+	}
+
+	public DocumentOptions setParagraphs(boolean paragraphs) {
+		this.paragraphs = paragraphs;
+		return this;
+	}
+
+	/**
+	 * Whether only the headings are extracted, among the paragraphs outside of the tables.
+	 */
+	public boolean isHeadingsOnly() {
+		return headingsOnly;
+	}
+
+	public DocumentOptions setHeadingsOnly(boolean headingsOnly) {
+		this.headingsOnly = headingsOnly;
+		return this;
+	}
+
+	public boolean isTables() {
+		return tables;
+	}
+
+	public DocumentOptions setTables(boolean tables) {
+		this.tables = tables;
+		return this;
+	}
+
+	public boolean isHeaders() {
+		return headers;
+	}
+
+	public DocumentOptions setHeaders(boolean headers) {
+		this.headers = headers;
+		return this;
+	}
+
+	public boolean isFooters() {
+		return footers;
+	}
+
+	public DocumentOptions setFooters(boolean footers) {
+		this.footers = footers;
+		return this;
+	}
+
+}
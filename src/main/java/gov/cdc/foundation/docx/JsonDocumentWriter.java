@@ -0,0 +1,151 @@
+package gov.cdc.foundation.docx;
+
+import java.io.IOException;
+
+import org.xml.sax.SAXException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes the document as `{"body": [...]}`, with `headers` and `footers` arrays when they are extracted.
+ * Items are either `{"type": "paragraph", "text": "...", "style": "...", "heading": n, "list": {"id": "...", "level": n}}`
+ * or `{"type": "table", "rows": [["cell", ...], ...]}`. Nested tables are flattened into the text of their cell.
+ */
+public class JsonDocumentWriter implements DocumentEventListener {
+
+	private final JsonGenerator generator;
+
+	private int tableDepth;
+	private boolean firstInCell;
+	private final StringBuilder cell = new StringBuilder();
+
+	public JsonDocumentWriter(JsonGenerator generator) {
+		this.generator = generator;
+	}
+
+	public void start() throws IOException {
+		generator.writeStartObject();
+	}
+
+	@Override
+	public void startPart(String name) throws SAXException {
+		try {
+			generator.writeArrayFieldStart(name);
+		} catch (IOException e) {
+			throw new SAXException(e);
+		}
+	}
+
+	@Override
+	public void endPart() throws SAXException {
+		try {
+			generator.writeEndArray();
+		} catch (IOException e) {
+			throw new SAXException(e);
+		}
+	}
+
+	@Override
+	public void paragraph(Paragraph paragraph) throws SAXException {
+		if (tableDepth > 0) {
+			if (!firstInCell)
+				cell.append('\n');
+			cell.append(paragraph.getText());
+			firstInCell = false;
+			return;
+		}
+
+		try {
+			generator.writeStartObject();
+			generator.writeStringField("type", "paragraph");
+			generator.writeStringField("text", paragraph.getText());
+			if (paragraph.getStyle() != null)
+				generator.writeStringField("style", paragraph.getStyle());
+			if (paragraph.getHeadingLevel() > 0)
+				generator.writeNumberField("heading", paragraph.getHeadingLevel());
+			if (paragraph.getListId() != null) {
+				generator.writeObjectFieldStart("list");
+				generator.writeStringField("id", paragraph.getListId());
+				generator.writeNumberField("level", paragraph.getListLevel());
+				generator.writeEndObject();
+			}
+			generator.writeEndObject();
+		} catch (IOException e) {
+			throw new SAXException(e);
+		}
+	}
+
+	@Override
+	public void startTable() throws SAXException {
+		tableDepth++;
+		if (tableDepth > 1)
+			return;
+		try {
+			generator.writeStartObject();
+			generator.writeStringField("type", "table");
+			generator.writeArrayFieldStart("rows");
+		} catch (IOException e) {
+			throw new SAXException(e);
+		}
+	}
+
+	@Override
+	public void startRow() throws SAXException {
+		if (tableDepth > 1)
+			return;
+		try {
+			generator.writeStartArray();
+		} catch (IOException e) {
+			throw new SAXException(e);
+		}
+	}
+
+	@Override
+	public void startCell() {
+		if (tableDepth > 1)
+			return;
+		cell.setLength(0);
+		firstInCell = true;
+	}
+
+	@Override
+	public void endCell() throws SAXException {
+		if (tableDepth > 1)
+			return;
+		try {
+			generator.writeString(cell.toString());
+		} catch (IOException e) {
+			throw new SAXException(e);
+		}
+	}
+
+	@Override
+	public void endRow() throws SAXException {
+		if (tableDepth > 1)
+			return;
+		try {
+			generator.writeEndArray();
+		} catch (IOException e) {
+			throw new SAXException(e);
+		}
+	}
+
+	@Override
+	public void endTable() throws SAXException {
+		tableDepth--;
+		if (tableDepth > 0)
+			return;
+		try {
+			generator.writeEndArray();
+			generator.writeEndObject();
+		} catch (IOException e) {
+			throw new SAXException(e);
+		}
+	}
+
+	public void end() throws IOException {
+		generator.writeEndObject();
+		generator.flush();
+	}
+
+}
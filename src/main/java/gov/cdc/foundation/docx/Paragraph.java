@@ -0,0 +1,51 @@
+package gov.cdc.foundation.docx;
+
+/**
+ * A paragraph with its style, its heading level and its list numbering, if any.
+ */
+public class Paragraph {
+
+	private final String style;
+	private final int headingLevel;
+	private final String listId;
+	private final int listLevel;
+	private final String text;
+
+	public Paragraph(String style, int headingLevel, String listId, int listLevel, String text) {
+		this.style = style;
+		this.headingLevel = headingLevel;
+		this.listId = listId;
+		this.listLevel = listLevel;
+		this.text = text;
+	}
+
+	/**
+	 * Id of the paragraph style, or null.
+	 */
+	public String getStyle() {
+		return style;
+	}
+
+	/**
+	 * 1 to 9 for headings, 0 otherwise.
+	 */
+	public int getHeadingLevel() {
+		return headingLevel;
+	}
+
+	/**
+	 * Numbering id of the list the paragraph belongs to, or null.
+	 */
+	public String getListId() {
+		return listId;
+	}
+
+	public int getListLevel() {
+		return listLevel;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+}
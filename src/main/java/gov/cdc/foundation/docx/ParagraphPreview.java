@@ -0,0 +1,75 @@
+package gov.cdc.foundation.docx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.xml.sax.SAXException;
+
+import gov.cdc.foundation.helper.StopReadingException;
+
+/**
+ * Keeps the first non-empty paragraphs of a document and stops the reading as soon as it has `limit` of them.
+ */
+public class ParagraphPreview implements DocumentEventListener {
+
+	private final int limit;
+	private final List<Paragraph> paragraphs = new ArrayList<>();
+
+	public ParagraphPreview(int limit) {
+		this.limit = limit;
+	}
+
+	@Override
+	public void startPart(String name) {
+		// Only the body is read
+	}
+
+	@Override
+	public void endPart() {
+		// Only the body is read
+	}
+
+	@Override
+	public void paragraph(Paragraph paragraph) throws SAXException {
+		if (paragraph.getText().trim().isEmpty())
+			return;
+		paragraphs.add(paragraph);
+		if (paragraphs.size() >= limit)
+			throw new StopReadingException();
+	}
+
+	@Override
+	public void startTable() {
+		// The tables are skipped by the options
+	}
+
+	@Override
+	public void startRow() {
+		// The tables are skipped by the options
+	}
+
+	@Override
+	public void startCell() {
+		// The tables are skipped by the options
+	}
+
+	@Override
+	public void endCell() {
+		// The tables are skipped by the options
+	}
+
+	@Override
+	public void endRow() {
+		// The tables are skipped by the options
+	}
+
+	@Override
+	public void endTable() {
+		// The tables are skipped by the options
+	}
+
+	public List<Paragraph> getParagraphs() {
+		return paragraphs;
+	}
+
+}
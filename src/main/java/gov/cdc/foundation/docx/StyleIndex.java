@@ -0,0 +1,114 @@
+package gov.cdc.foundation.docx;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.util.SAXHelper;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Heading levels of the paragraph styles, read from the styles part.
+ */
+public class StyleIndex {
+
+	public static final StyleIndex EMPTY = new StyleIndex(new HashMap<>());
+
+	private static final String W_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+	private static final Pattern HEADING_NAME = Pattern.compile("heading ([1-9])", Pattern.CASE_INSENSITIVE);
+	// Body text in the outline levels
+	private static final int BODY_OUTLINE_LEVEL = 9;
+	private static final int MAX_INHERITANCE_DEPTH = 10;
+
+	private final Map<String, Integer> headingLevels;
+
+	private StyleIndex(Map<String, Integer> headingLevels) {
+		this.headingLevels = headingLevels;
+	}
+
+	public int getHeadingLevel(String styleId) {
+		Integer level = styleId == null ? null : headingLevels.get(styleId);
+		return level == null ? 0 : level;
+	}
+
+	/**
+	 * Converts an `outlineLvl` value, 0-based with 9 for body text, to a heading level.
+	 */
+	public static int toHeadingLevel(String outlineLevel) {
+		try {
+			int lvl = Integer.parseInt(outlineLevel);
+			return lvl >= 0 && lvl < BODY_OUTLINE_LEVEL ? lvl + 1 : 0;
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	public static StyleIndex read(InputStream is) throws IOException, SAXException {
+		Map<String, String[]> styles = new HashMap<>();
+		XMLReader parser;
+		try {
+			parser = SAXHelper.newXMLReader();
+		} catch (ParserConfigurationException e) {
+			throw new SAXException(e);
+		}
+		parser.setContentHandler(new DefaultHandler() {
+			// Name, base style and outline level of the current paragraph style
+			private String[] current;
+
+			@Override
+			public void startElement(String uri, String localName, String qName, Attributes attributes) {
+				if (!W_NS.equals(uri))
+					return;
+				if ("style".equals(localName)) {
+					current = "paragraph".equals(attributes.getValue(W_NS, "type")) ? new String[3] : null;
+					if (current != null)
+						styles.put(attributes.getValue(W_NS, "styleId"), current);
+				} else if (current != null) {
+					if ("name".equals(localName))
+						current[0] = attributes.getValue(W_NS, "val");
+					else if ("basedOn".equals(localName))
+						current[1] = attributes.getValue(W_NS, "val");
+					else if ("outlineLvl".equals(localName))
+						current[2] = attributes.getValue(W_NS, "val");
+				}
+			}
+
+			@Override
+			public void endElement(String uri, String localName, String qName) {
+				if ("style".equals(localName))
+					current = null;
+			}
+		});
+		parser.parse(new InputSource(is));
+
+		Map<String, Integer> headingLevels = new HashMap<>();
+		for (String styleId : styles.keySet()) {
+			int level = resolve(styles, styleId, 0);
+			if (level > 0)
+				headingLevels.put(styleId, level);
+		}
+		return new StyleIndex(headingLevels);
+	}
+
+	private static int resolve(Map<String, String[]> styles, String styleId, int depth) {
+		String[] style = styles.get(styleId);
+		if (style == null || depth > MAX_INHERITANCE_DEPTH)
+			return 0;
+		if (style[2] != null)
+			return toHeadingLevel(style[2]);
+		Matcher m = style[0] == null ? null : HEADING_NAME.matcher(style[0]);
+		if (m != null && m.matches())
+			return Integer.parseInt(m.group(1));
+		return resolve(styles, style[1], depth + 1);
+	}
+
+}
@@ -0,0 +1,89 @@
+package gov.cdc.foundation.docx;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Writes the text of the document like the POI word extractor: one line per paragraph and per table row,
+ * with the table cells and the paragraphs of a cell separated by tabs.
+ */
+public class TextWriter implements DocumentEventListener {
+
+	private final Writer writer;
+
+	private int tableDepth;
+	private boolean firstInRow;
+	private boolean firstInCell;
+
+	public TextWriter(Writer writer) {
+		this.writer = writer;
+	}
+
+	@Override
+	public void startPart(String name) {
+		// Nothing to write
+	}
+
+	@Override
+	public void endPart() {
+		// Nothing to write
+	}
+
+	@Override
+	public void paragraph(Paragraph paragraph) throws SAXException {
+		String text = paragraph.getText();
+		if (tableDepth == 0) {
+			write(text);
+			write("\n");
+		} else {
+			if (!firstInCell)
+				write("\t");
+			write(text);
+			firstInCell = false;
+		}
+	}
+
+	@Override
+	public void startTable() {
+		tableDepth++;
+	}
+
+	@Override
+	public void startRow() {
+		firstInRow = true;
+	}
+
+	@Override
+	public void startCell() throws SAXException {
+		if (!firstInRow)
+			write("\t");
+		firstInRow = false;
+		firstInCell = true;
+	}
+
+	@Override
+	public void endCell() {
+		// Nothing to write
+	}
+
+	@Override
+	public void endRow() throws SAXException {
+		write("\n");
+	}
+
+	@Override
+	public void endTable() {
+		tableDepth--;
+	}
+
+	private void write(String s) throws SAXException {
+		try {
+			writer.write(s);
+		} catch (IOException e) {
+			throw new SAXException(e);
+		}
+	}
+
+}
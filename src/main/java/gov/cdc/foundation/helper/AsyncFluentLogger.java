@@ -0,0 +1,151 @@
+package gov.cdc.foundation.helper;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.Logger;
+import org.fluentd.logger.FluentLogger;
+
+/**
+ * Sends the log events to Fluentd from a background thread, so that a slow or unreachable Fluentd never blocks
+ * the request threads. Events wait in a bounded ring buffer and are dropped, and counted, when it is full.
+ * The buffer is drained in batches, with one flush per batch.
+ */
+public class AsyncFluentLogger implements Closeable {
+
+	private static final Logger logger = Logger.getLogger(AsyncFluentLogger.class);
+
+	// How long the drainer sleeps when there's nothing to send
+	private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+	private final String prefix;
+	private final String host;
+	private final int port;
+	private final int batchSize;
+	private final long shutdownTimeout;
+	private final LogRingBuffer<Event> buffer;
+	private final Thread drainer;
+	private volatile boolean running = true;
+
+	private final AtomicLong sent = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+
+	// Only used by the drainer
+	private FluentLogger fluent;
+
+	public AsyncFluentLogger(String prefix, String host, int port, int capacity, int batchSize, long shutdownTimeout) {
+		this.prefix = prefix;
+		this.host = host;
+		this.port = port;
+		this.batchSize = batchSize;
+		this.shutdownTimeout = shutdownTimeout;
+		this.buffer = new LogRingBuffer<>(capacity);
+		this.drainer = new Thread(this::drain, "fluentd-logger");
+		this.drainer.setDaemon(true);
+		this.drainer.start();
+	}
+
+	/**
+	 * Queues an event, returns false if it has been dropped.
+	 */
+	public boolean log(String action, Map<String, Object> data) {
+		// Copy the data, the caller may keep using its map
+		if (running && buffer.offer(new Event(action, new HashMap<>(data), System.currentTimeMillis() / 1000)))
+			return true;
+		dropped.incrementAndGet();
+		return false;
+	}
+
+	private void drain() {
+		while (running)
+			if (sendBatch() == 0)
+				LockSupport.parkNanos(IDLE_NANOS);
+
+		// Send what's left before closing the connection
+		while (sendBatch() > 0);
+		if (fluent != null)
+			fluent.close();
+	}
+
+	private int sendBatch() {
+		int count = 0;
+		Event event;
+		while (count < batchSize && (event = buffer.poll()) != null) {
+			FluentLogger f = getLogger();
+			if (f != null && f.log(event.action, event.data, event.timestamp))
+				sent.incrementAndGet();
+			else
+				failed.incrementAndGet();
+			count++;
+		}
+		if (count > 0 && fluent != null)
+			fluent.flush();
+		return count;
+	}
+
+	private FluentLogger getLogger() {
+		if (fluent == null)
+			try {
+				fluent = FluentLogger.getLogger(prefix, host, port);
+			} catch (NoClassDefFoundError e) {
+				logger.error(e);
+			}
+		return fluent;
+	}
+
+	/**
+	 * Stops accepting events and waits at most `shutdownTimeout` seconds for the queued ones to be sent.
+	 */
+	@Override
+	public void close() {
+		running = false;
+		LockSupport.unpark(drainer);
+		try {
+			drainer.join(TimeUnit.SECONDS.toMillis(shutdownTimeout));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (drainer.isAlive())
+			logger.warn("Fluentd logger stopped with " + buffer.size() + " events left.");
+	}
+
+	public long getSent() {
+		return sent.get();
+	}
+
+	public long getFailed() {
+		return failed.get();
+	}
+
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	public int getQueued() {
+		return buffer.size();
+	}
+
+	public int getCapacity() {
+		return buffer.capacity();
+	}
+
+	private static class Event {
+
+		private final String action;
+		private final Map<String, Object> data;
+		private final long timestamp;
+
+		private Event(String action, Map<String, Object> data, long timestamp) {
+			this.action = action;
+			this.data = data;
+			this.timestamp = timestamp;
+		}
+
+	}
+
+}
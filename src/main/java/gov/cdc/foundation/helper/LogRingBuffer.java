@@ -0,0 +1,84 @@
+package gov.cdc.foundation.helper;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring buffer. Each slot has a sequence number telling whether it is free for the producer
+ * at position `pos` (sequence == pos) or filled for the consumer at position `pos` (sequence == pos + 1),
+ * so producers and consumers only compete on a CAS of the tail and the head.
+ */
+class LogRingBuffer<E> {
+
+	private final int mask;
+	private final AtomicReferenceArray<E> slots;
+	private final AtomicLongArray sequences;
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+
+	LogRingBuffer(int capacity) {
+		// Round up to a power of two so that the index is a mask of the position
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		this.mask = size - 1;
+		this.slots = new AtomicReferenceArray<>(size);
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++)
+			sequences.set(i, i);
+	}
+
+	/**
+	 * Adds an element, or returns false right away when the buffer is full.
+	 */
+	boolean offer(E element) {
+		long pos = tail.get();
+		while (true) {
+			long diff = sequences.get((int) pos & mask) - pos;
+			if (diff == 0) {
+				if (tail.compareAndSet(pos, pos + 1))
+					break;
+				pos = tail.get();
+			} else if (diff < 0)
+				return false;
+			else
+				pos = tail.get();
+		}
+		int index = (int) pos & mask;
+		slots.set(index, element);
+		sequences.set(index, pos + 1);
+		return true;
+	}
+
+	/**
+	 * Removes the oldest element, or returns null when the buffer is empty.
+	 */
+	E poll() {
+		long pos = head.get();
+		while (true) {
+			long diff = sequences.get((int) pos & mask) - (pos + 1);
+			if (diff == 0) {
+				if (head.compareAndSet(pos, pos + 1))
+					break;
+				pos = head.get();
+			} else if (diff < 0)
+				return null;
+			else
+				pos = head.get();
+		}
+		int index = (int) pos & mask;
+		E element = slots.get(index);
+		slots.set(index, null);
+		// Free the slot for the producer one lap later
+		sequences.set(index, pos + mask + 1);
+		return element;
+	}
+
+	int size() {
+		return (int) Math.max(0, tail.get() - head.get());
+	}
+
+	int capacity() {
+		return mask + 1;
+	}
+
+}
@@ -2,43 +2,57 @@ package gov.cdc.foundation.helper;
 
 import java.util.Map;
 
+import javax.annotation.PreDestroy;
+
 import org.apache.log4j.Logger;
-import org.fluentd.logger.FluentLogger;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
 @Component
-public class LoggerHelper {
+public class LoggerHelper implements MeterBinder {
 
-	private static FluentLogger fluent;
+	// The helper created last, which the static `log` goes through
+	private static volatile LoggerHelper instance;
 
 	private static final Logger logger = Logger.getLogger(LoggerHelper.class);
 
-	private static String prefix;
-	private static String host;
-	private static int port;
+	private final AsyncFluentLogger fluent;
 
-	private LoggerHelper(@Value("${logging.fluentd.host}") String host, @Value("${logging.fluentd.port}") int port, @Value("${logging.fluentd.prefix}") String prefix) {
+	private LoggerHelper(
+		@Value("${logging.fluentd.host}") String host, @Value("${logging.fluentd.port}") int port, @Value("${logging.fluentd.prefix}") String prefix,
+		@Value("${logging.fluentd.queue-size}") int queueSize, @Value("${logging.fluentd.batch-size}") int batchSize, @Value("${logging.fluentd.shutdown-timeout}") long shutdownTimeout
+	) {
 		logger.debug("Creating logger helper...");
-		LoggerHelper.host = host;
-		LoggerHelper.prefix = prefix;
-		LoggerHelper.port = port;
+		this.fluent = new AsyncFluentLogger(prefix, host, port, queueSize, batchSize, shutdownTimeout);
+		LoggerHelper.instance = this;
 	}
 
 	public static void log(String action, Map<String, Object> data) {
-		FluentLogger myLogger = getLogger();
-		if (myLogger != null)
-			myLogger.log(action, data);
+		// The events are sent in the background, this never blocks
+		LoggerHelper helper = instance;
+		if (helper != null)
+			helper.fluent.log(action, data);
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("fluentd.events", fluent, AsyncFluentLogger::getSent).tag("result", "sent").register(registry);
+		FunctionCounter.builder("fluentd.events", fluent, AsyncFluentLogger::getFailed).tag("result", "failed").register(registry);
+		FunctionCounter.builder("fluentd.events", fluent, AsyncFluentLogger::getDropped).tag("result", "dropped").register(registry);
+		Gauge.builder("fluentd.queued", fluent, AsyncFluentLogger::getQueued).register(registry);
 	}
 
-	private static FluentLogger getLogger() {
-		if (fluent == null)
-			try {
-				fluent = FluentLogger.getLogger(prefix, host, port);
-			} catch (NoClassDefFoundError e) {
-				logger.error(e);
-			}
-		return fluent;
+	@PreDestroy
+	public void destroy() {
+		// Flush the queued events before shutting down
+		if (instance == this)
+			instance = null;
+		fluent.close();
 	}
 
 }
@@ -8,12 +8,24 @@ import gov.cdc.helper.AbstractMessageHelper;
 public class MessageHelper extends AbstractMessageHelper {
 
 	public static final String CONST_FILENAME = "filename";
+	public static final String CONST_ID = "id";
 
 	public static final String METHOD_INDEX = "index";
 	public static final String METHOD_GETSHEETS = "getSheets";
 	public static final String METHOD_EXTRACTDATA_XLSX = "extractDataFromXLSX";
+	public static final String METHOD_EXTRACTBATCH_XLSX = "extractBatchFromXLSX";
 	public static final String METHOD_EXTRACTDATA_DOCX = "extractDataFromDOCX";
+	public static final String METHOD_PREVIEW_XLSX = "previewXLSX";
+	public static final String METHOD_PREVIEW_DOCX = "previewDOCX";
 	public static final String METHOD_CONVERTCSVTOXLSX = "convertCSVToXLSX";
+	public static final String METHOD_GETCACHESTATS = "getCacheStats";
+	public static final String METHOD_STOREDOCUMENT = "storeDocument";
+	public static final String METHOD_DELETEDOCUMENT = "deleteDocument";
+	public static final String METHOD_GETJOBSTATS = "getJobStats";
+	public static final String METHOD_GETJOB = "getJob";
+	public static final String METHOD_GETJOBRESULT = "getJobResult";
+	public static final String METHOD_DELETEJOB = "deleteJob";
+	public static final String METHOD_GETADMISSIONSTATS = "getAdmissionStats";
 
 	private MessageHelper() {
 		throw new IllegalAccessError("Helper class");
@@ -0,0 +1,16 @@
+package gov.cdc.foundation.helper;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Thrown by a listener to end the SAX parse of a sheet or of a document once it has everything it needs.
+ */
+public class StopReadingException extends SAXException {
+
+	private static final long serialVersionUID = 1L;
+
+	public StopReadingException() {
+		super("Reading stopped by the listener.");
+	}
+
+}
@@ -0,0 +1,122 @@
+package gov.cdc.foundation.jobs;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * A conversion running in the background. The upload and the result are kept on the local disk.
+ */
+public class Job {
+
+	public enum Status {
+		QUEUED, RUNNING, SUCCEEDED, FAILED
+	}
+
+	private final String id;
+	private final String contentType;
+	private final String contentDisposition;
+	private final File input;
+	private final File result;
+	private final long submitted;
+	private volatile Status status = Status.QUEUED;
+	private volatile String message;
+	private volatile long finished;
+	private Future<?> future;
+
+	Job(String id, String contentType, String contentDisposition, File input, File result) {
+		this.id = id;
+		this.contentType = contentType;
+		this.contentDisposition = contentDisposition;
+		this.input = input;
+		this.result = result;
+		this.submitted = System.currentTimeMillis();
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public String getContentDisposition() {
+		return contentDisposition;
+	}
+
+	public File getResult() {
+		return result;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Error message of a failed job.
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	public boolean isFinished() {
+		return status == Status.SUCCEEDED || status == Status.FAILED;
+	}
+
+	long getFinished() {
+		return finished;
+	}
+
+	File getInput() {
+		return input;
+	}
+
+	void setFuture(Future<?> future) {
+		this.future = future;
+	}
+
+	void running() {
+		status = Status.RUNNING;
+	}
+
+	void succeeded() {
+		finish(Status.SUCCEEDED, null);
+	}
+
+	void failed(String message) {
+		finish(Status.FAILED, message);
+	}
+
+	private void finish(Status status, String message) {
+		this.message = message;
+		this.finished = System.currentTimeMillis();
+		this.status = status;
+		FileUtils.deleteQuietly(input);
+		if (status == Status.FAILED)
+			FileUtils.deleteQuietly(result);
+	}
+
+	void delete() {
+		if (future != null)
+			future.cancel(true);
+		FileUtils.deleteQuietly(input);
+		FileUtils.deleteQuietly(result);
+	}
+
+	public Map<String, Object> toMap() {
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("id", id);
+		map.put("status", status.name().toLowerCase());
+		map.put("submitted", submitted);
+		if (isFinished())
+			map.put("finished", finished);
+		if (message != null)
+			map.put("message", message);
+		return map;
+	}
+
+}
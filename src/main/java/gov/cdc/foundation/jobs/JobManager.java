@@ -0,0 +1,173 @@
+package gov.cdc.foundation.jobs;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import gov.cdc.foundation.admission.MemoryBudget;
+import gov.cdc.foundation.admission.MemoryEstimator;
+import gov.cdc.foundation.admission.Reservation;
+import gov.cdc.helper.common.ServiceException;
+
+/**
+ * Runs the conversions submitted in async mode on a bounded pool of workers.
+ * When all the workers are busy and the queue is full, submissions are rejected instead of piling up.
+ * Finished jobs are deleted `ttl` seconds after they end.
+ */
+@Component
+public class JobManager implements MeterBinder {
+
+	private static final Logger logger = Logger.getLogger(JobManager.class);
+
+	private final MemoryBudget budget;
+	private final int workers;
+	private final int queueSize;
+	private final long ttl;
+	private final long stringsHeapLimit;
+	private final File directory;
+	private final ThreadPoolExecutor executor;
+	private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService cleaner;
+
+	public JobManager(MemoryBudget budget, @Value("${jobs.workers}") int workers, @Value("${jobs.queue-size}") int queueSize, @Value("${jobs.ttl}") long ttl, @Value("${xlsx.shared-strings.heap-limit}") long stringsHeapLimit) throws IOException {
+		logger.debug("Creating job manager...");
+		this.budget = budget;
+		this.workers = workers;
+		this.queueSize = queueSize;
+		this.ttl = ttl;
+		this.stringsHeapLimit = stringsHeapLimit;
+		this.directory = Files.createTempDirectory("fdns-msft-jobs").toFile();
+		this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+				new ThreadFactoryBuilder().setDaemon(true).setNameFormat("job-worker-%d").build(), new ThreadPoolExecutor.AbortPolicy());
+
+		this.cleaner = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("job-cleaner").build());
+		this.cleaner.scheduleWithFixedDelay(this::cleanUp, 1, 1, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * Copies the upload to the local disk and queues the task.
+	 * Throws a RejectedExecutionException when the queue is full.
+	 */
+	public Job submit(MultipartFile file, String contentType, String contentDisposition, JobTask task) throws IOException {
+		// Don't copy the upload if it can't be queued anyway
+		if (executor.getQueue().remainingCapacity() == 0)
+			throw new RejectedExecutionException("Too many jobs are waiting, please retry later.");
+
+		String id = UUID.randomUUID().toString();
+		File input = new File(directory, id + ".input");
+		file.transferTo(input);
+		Job job = new Job(id, contentType, contentDisposition, input, new File(directory, id + ".result"));
+
+		jobs.put(id, job);
+		try {
+			job.setFuture(executor.submit(() -> run(job, task)));
+		} catch (RejectedExecutionException e) {
+			jobs.remove(id);
+			job.delete();
+			throw new RejectedExecutionException("Too many jobs are waiting, please retry later.", e);
+		}
+		return job;
+	}
+
+	public Job get(String id) throws ServiceException {
+		Job job = jobs.get(id);
+		if (job == null)
+			throw new ServiceException("The following job doesn't exist: " + id);
+		return job;
+	}
+
+	/**
+	 * Cancels the job if it isn't finished and deletes its files.
+	 */
+	public void delete(String id) throws ServiceException {
+		Job job = jobs.remove(id);
+		if (job == null)
+			throw new ServiceException("The following job doesn't exist: " + id);
+		job.delete();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("jobs.active", executor, ThreadPoolExecutor::getActiveCount).register(registry);
+		Gauge.builder("jobs.queued", executor, e -> e.getQueue().size()).register(registry);
+		Gauge.builder("jobs.stored", jobs, Map::size).register(registry);
+	}
+
+	public long getTtl() {
+		return ttl;
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new HashMap<>();
+		stats.put("workers", workers);
+		stats.put("active", executor.getActiveCount());
+		stats.put("queued", executor.getQueue().size());
+		stats.put("queueSize", queueSize);
+		stats.put("jobs", jobs.size());
+		return stats;
+	}
+
+	private void run(Job job, JobTask task) {
+		// Wait for enough memory before parsing, the queue of the workers is already bounded
+		try (Reservation reservation = budget.await(MemoryEstimator.estimate(job.getInput(), stringsHeapLimit));
+				OutputStream os = new BufferedOutputStream(new FileOutputStream(job.getResult()))) {
+			job.running();
+			task.run(new FileSystemResource(job.getInput()), os);
+			os.flush();
+			job.succeeded();
+		} catch (Exception e) {
+			logger.error(e);
+			job.failed(e.getMessage());
+		}
+	}
+
+	private void cleanUp() {
+		long expiry = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(ttl);
+		Iterator<Job> it = jobs.values().iterator();
+		while (it.hasNext()) {
+			Job job = it.next();
+			if (job.isFinished() && job.getFinished() < expiry) {
+				it.remove();
+				job.delete();
+			}
+		}
+	}
+
+	@PreDestroy
+	public void destroy() {
+		cleaner.shutdownNow();
+		executor.shutdownNow();
+		jobs.clear();
+		FileUtils.deleteQuietly(directory);
+	}
+
+}
@@ -0,0 +1,15 @@
+package gov.cdc.foundation.jobs;
+
+import java.io.OutputStream;
+
+import org.springframework.core.io.InputStreamSource;
+
+/**
+ * The work of a job: reads the uploaded file and writes the result.
+ */
+@FunctionalInterface
+public interface JobTask {
+
+	void run(InputStreamSource input, OutputStream output) throws Exception;
+
+}
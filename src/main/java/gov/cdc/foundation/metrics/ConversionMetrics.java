@@ -0,0 +1,49 @@
+package gov.cdc.foundation.metrics;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Entry point of the conversion metrics: the upload sizes, the duration of each stage and the rows and cells processed,
+ * tagged by endpoint and by size bucket.
+ */
+@Component
+public class ConversionMetrics {
+
+	private static final long MB = 1024L * 1024L;
+
+	private final MeterRegistry registry;
+
+	public ConversionMetrics(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * Starts timing a conversion of `size` bytes.
+	 */
+	public ConversionTimer start(String endpoint, long size) {
+		String bucket = sizeBucket(size);
+		DistributionSummary.builder("msft.conversion.upload.size")
+				.description("Size of the converted files")
+				.baseUnit("bytes")
+				.tag("endpoint", endpoint)
+				.tag("size", bucket)
+				.register(registry)
+				.record(size);
+		return new ConversionTimer(registry, endpoint, bucket);
+	}
+
+	public static String sizeBucket(long size) {
+		if (size < MB)
+			return "lt1MB";
+		else if (size < 10 * MB)
+			return "1-10MB";
+		else if (size < 100 * MB)
+			return "10-100MB";
+		else
+			return "gt100MB";
+	}
+
+}
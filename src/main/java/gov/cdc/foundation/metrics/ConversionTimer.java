@@ -0,0 +1,73 @@
+package gov.cdc.foundation.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import gov.cdc.foundation.xlsx.SheetRowHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times the stages of one conversion. Each call to `stage` records the time since the previous one.
+ * Rows and cells are counted locally and only added to the counters when the conversion is finished.
+ * Not thread-safe, a conversion is timed by the thread serving it.
+ */
+public class ConversionTimer {
+
+	private final MeterRegistry registry;
+	private final String endpoint;
+	private final String size;
+	private final long start;
+	private long mark;
+	private long rows;
+	private long cells;
+
+	ConversionTimer(MeterRegistry registry, String endpoint, String size) {
+		this.registry = registry;
+		this.endpoint = endpoint;
+		this.size = size;
+		this.start = System.nanoTime();
+		this.mark = start;
+	}
+
+	public void stage(String stage) {
+		long now = System.nanoTime();
+		Timer.builder("msft.conversion.stage")
+				.description("Duration of a conversion stage")
+				.tag("endpoint", endpoint)
+				.tag("stage", stage)
+				.tag("size", size)
+				.publishPercentileHistogram()
+				.register(registry)
+				.record(now - mark, TimeUnit.NANOSECONDS);
+		mark = now;
+	}
+
+	public void count(long rows, long cells) {
+		this.rows += rows;
+		this.cells += cells;
+	}
+
+	/**
+	 * Counts the rows and the cells going through the handler.
+	 */
+	public SheetRowHandler count(SheetRowHandler handler) {
+		return values -> {
+			count(1, values.length);
+			handler.row(values);
+		};
+	}
+
+	public void finish() {
+		Timer.builder("msft.conversion")
+				.description("Duration of a conversion")
+				.tag("endpoint", endpoint)
+				.tag("size", size)
+				.publishPercentileHistogram()
+				.register(registry)
+				.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		Counter.builder("msft.conversion.rows").tag("endpoint", endpoint).register(registry).increment(rows);
+		Counter.builder("msft.conversion.cells").tag("endpoint", endpoint).register(registry).increment(cells);
+	}
+
+}
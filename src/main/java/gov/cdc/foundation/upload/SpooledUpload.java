@@ -0,0 +1,44 @@
+package gov.cdc.foundation.upload;
+
+import java.io.Closeable;
+import java.io.File;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+
+/**
+ * An upload, either kept as it is or copied to a temp file. The temp file is deleted on close.
+ */
+public class SpooledUpload implements Closeable {
+
+	private final InputStreamSource source;
+	private final File file;
+
+	SpooledUpload(InputStreamSource source) {
+		this.source = source;
+		this.file = null;
+	}
+
+	SpooledUpload(File file) {
+		this.source = new FileSystemResource(file);
+		this.file = file;
+	}
+
+	/**
+	 * The readers open a `FileSystemResource` from its file, without inflating the parts they don't read.
+	 */
+	public InputStreamSource getSource() {
+		return source;
+	}
+
+	public boolean isSpooled() {
+		return file != null;
+	}
+
+	@Override
+	public void close() {
+		if (file != null && !file.delete() && file.exists())
+			file.deleteOnExit();
+	}
+
+}
@@ -0,0 +1,65 @@
+package gov.cdc.foundation.upload;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Copies the uploads larger than `threshold` bytes to temp files, so that the packages can be opened read-only
+ * from a file: the zip entries are then only inflated when they are read, instead of all at once in memory.
+ */
+@Component
+public class UploadSpooler {
+
+	private static final Logger logger = Logger.getLogger(UploadSpooler.class);
+
+	private final long threshold;
+	private final File directory;
+
+	public UploadSpooler(@Value("${upload.spool-threshold}") long threshold) throws IOException {
+		logger.debug("Creating upload spooler...");
+		this.threshold = threshold;
+		this.directory = Files.createTempDirectory("fdns-msft-uploads").toFile();
+	}
+
+	/**
+	 * Returns true if an upload of `size` bytes is copied to a temp file.
+	 */
+	public boolean isSpooled(long size) {
+		return size > threshold;
+	}
+
+	/**
+	 * The upload must be closed to delete its temp file.
+	 */
+	public SpooledUpload spool(MultipartFile file) throws IOException {
+		if (!isSpooled(file.getSize()))
+			return new SpooledUpload(file);
+
+		File target = File.createTempFile("upload-", ".tmp", directory);
+		try (InputStream is = file.getInputStream()) {
+			Files.copy(is, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException | RuntimeException e) {
+			target.delete();
+			throw e;
+		}
+		return new SpooledUpload(target);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		// Remove what's left of the requests still running
+		FileUtils.deleteQuietly(directory);
+	}
+
+}
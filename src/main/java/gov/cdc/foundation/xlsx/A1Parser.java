@@ -0,0 +1,141 @@
+package gov.cdc.foundation.xlsx;
+
+/**
+ * Allocation-free parser for A1 references. The parsed coordinates are written in an `int[]` provided by the caller,
+ * so the same array can be reused from one call to the next. All indexes are 0-based.
+ */
+public final class A1Parser {
+
+	public static final int MAX_ROWS = 1048576;
+	public static final int MAX_COLUMNS = 16384;
+
+	// Positions in the `area` array
+	public static final int START_ROW = 0;
+	public static final int START_COL = 1;
+	public static final int END_ROW = 2;
+	public static final int END_COL = 3;
+	public static final int KIND = 4;
+	public static final int AREA_SIZE = 5;
+
+	// Kinds of area
+	public static final int CELLS = 0;
+	public static final int COLUMNS = 1;
+	public static final int ROWS = 2;
+
+	private static final int MAX_LETTERS = 3;
+	private static final int MAX_DIGITS = 7;
+
+	private A1Parser() {
+		throw new IllegalAccessError("Helper class");
+	}
+
+	/**
+	 * Parses `A1:D10`, `$A$1:$D$10`, `B3`, `A:D` or `3:10` between `from` (inclusive) and `to` (exclusive).
+	 * Returns false if the text is not a valid area.
+	 */
+	public static boolean parseArea(CharSequence s, int from, int to, int[] area) {
+		int colon = -1;
+		for (int i = from; i < to; i++) {
+			if (s.charAt(i) == ':') {
+				colon = i;
+				break;
+			}
+		}
+
+		long first = parseReference(s, from, colon < 0 ? to : colon);
+		if (first < 0)
+			return false;
+		long second = colon < 0 ? first : parseReference(s, colon + 1, to);
+		if (second < 0)
+			return false;
+
+		// Whole columns and rows need both sides, like `A:A`
+		int kind = kindOf(first);
+		if (kind != kindOf(second) || (kind != CELLS && colon < 0))
+			return false;
+
+		area[KIND] = kind;
+		area[START_COL] = kind == ROWS ? 0 : columnPart(first);
+		area[END_COL] = kind == ROWS ? MAX_COLUMNS - 1 : columnPart(second);
+		area[START_ROW] = kind == COLUMNS ? 0 : rowPart(first);
+		area[END_ROW] = kind == COLUMNS ? MAX_ROWS - 1 : rowPart(second);
+		return true;
+	}
+
+	/**
+	 * Returns the 0-based column of a cell reference like `AB12`, or -1 if it doesn't start with a column.
+	 */
+	public static int columnOf(CharSequence cellReference) {
+		int col = 0;
+		for (int i = 0; i < cellReference.length(); i++) {
+			int letter = letterValue(cellReference.charAt(i));
+			if (letter < 0)
+				break;
+			col = col * 26 + letter;
+		}
+		return col - 1;
+	}
+
+	/**
+	 * Parses one side of an area and packs it in a long: the 1-based column in the low 16 bits and the 1-based row above,
+	 * 0 meaning absent. Returns -1 if the reference is not valid.
+	 */
+	private static long parseReference(CharSequence s, int from, int to) {
+		int i = from;
+		if (i < to && s.charAt(i) == '$')
+			i++;
+
+		int col = 0;
+		int letters = 0;
+		int letter;
+		while (i < to && (letter = letterValue(s.charAt(i))) >= 0) {
+			col = col * 26 + letter;
+			letters++;
+			i++;
+		}
+		if (letters > MAX_LETTERS || col > MAX_COLUMNS)
+			return -1;
+
+		if (i < to && s.charAt(i) == '$' && letters > 0)
+			i++;
+
+		int row = 0;
+		int digits = 0;
+		while (i < to && s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+			row = row * 10 + (s.charAt(i) - '0');
+			digits++;
+			i++;
+		}
+		if (digits > MAX_DIGITS || row > MAX_ROWS || (digits > 0 && row == 0))
+			return -1;
+
+		if (i != to || (letters == 0 && digits == 0))
+			return -1;
+		return ((long) row << 16) | col;
+	}
+
+	private static int letterValue(char c) {
+		if (c >= 'A' && c <= 'Z')
+			return c - 'A' + 1;
+		if (c >= 'a' && c <= 'z')
+			return c - 'a' + 1;
+		return -1;
+	}
+
+	private static int kindOf(long reference) {
+		if (rowPart(reference) < 0)
+			return COLUMNS;
+		if (columnPart(reference) < 0)
+			return ROWS;
+		return CELLS;
+	}
+
+	private static int columnPart(long reference) {
+		return (int) (reference & 0xFFFF) - 1;
+	}
+
+	private static int rowPart(long reference) {
+		return (int) (reference >>> 16) - 1;
+	}
+
+}
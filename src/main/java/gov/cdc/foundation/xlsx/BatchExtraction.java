@@ -0,0 +1,100 @@
+package gov.cdc.foundation.xlsx;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One extraction of a batch, running on the pool of the batch extractor. Its rows are handed over to the writer
+ * through a bounded queue, so that the extraction waits for the writer rather than keeping the whole range in the heap.
+ */
+public class BatchExtraction {
+
+	// Marks the end of the rows, compared by identity as a landscape range can have empty rows
+	private static final String[] END = new String[0];
+
+	private final BlockingQueue<String[]> rows;
+	private final AtomicBoolean started = new AtomicBoolean();
+	private final CountDownLatch done = new CountDownLatch(1);
+	private volatile Exception error;
+	private Future<?> future;
+
+	BatchExtraction(int capacity) {
+		this.rows = new ArrayBlockingQueue<>(capacity);
+	}
+
+	void setFuture(Future<?> future) {
+		this.future = future;
+	}
+
+	/**
+	 * Extracts the range, unless the extraction has been cancelled before it started.
+	 */
+	void run(WorkbookHandle wb, String sheetName, RangeReference range) {
+		if (!started.compareAndSet(false, true))
+			return;
+		try {
+			wb.extract(sheetName, range, row -> {
+				try {
+					rows.put(row);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("The extraction has been cancelled.");
+				}
+			});
+		} catch (Exception e) {
+			error = e;
+		} finally {
+			try {
+				rows.put(END);
+			} catch (InterruptedException e) {
+				// The writer has given up on this extraction
+				Thread.currentThread().interrupt();
+			}
+			done.countDown();
+		}
+	}
+
+	/**
+	 * Hands the rows over to the handler as they are extracted, then rethrows the error of the extraction, if any.
+	 */
+	public void forEach(SheetRowHandler handler) throws Exception {
+		String[] row;
+		while ((row = rows.take()) != END)
+			handler.row(row);
+		if (error != null)
+			throw error;
+	}
+
+	/**
+	 * Cancels the extraction: it doesn't start if it is still waiting for a thread, otherwise its thread is interrupted
+	 * and it stops at the next row.
+	 */
+	void cancel() {
+		if (started.compareAndSet(false, true))
+			done.countDown();
+		else if (future != null)
+			future.cancel(true);
+	}
+
+	/**
+	 * Waits for the extraction to be done or cancelled, so that the workbook is no longer read.
+	 */
+	void await() {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				done.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+}
@@ -0,0 +1,79 @@
+package gov.cdc.foundation.xlsx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import gov.cdc.helper.common.ServiceException;
+
+/**
+ * Runs the extractions of a batch in parallel on a bounded pool.
+ * The sheets share the same workbook handle, so the shared strings and the styles are only decoded once.
+ * The pool runs the extractions in the order they are submitted, so the one being written has always started,
+ * and the next ones wait for the writer once their queue is full.
+ */
+@Component
+public class BatchExtractor {
+
+	private static final Logger logger = Logger.getLogger(BatchExtractor.class);
+
+	// The rows of an extraction waiting for the writer
+	private static final int QUEUE_ROWS = 256;
+
+	private final ExecutorService pool;
+
+	public BatchExtractor(@Value("${xlsx.batch.parallelism}") int parallelism) {
+		logger.debug("Creating batch extractor...");
+		this.pool = Executors.newFixedThreadPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Submits the extractions, in the same order as the specs.
+	 * The sheets and the ranges are checked before anything is submitted.
+	 */
+	public List<BatchExtraction> submit(WorkbookHandle wb, List<ExtractionSpec> specs) throws Exception {
+		List<String> sheets = new ArrayList<>();
+		List<RangeReference> ranges = new ArrayList<>();
+		for (ExtractionSpec spec : specs) {
+			RangeReference range = wb.resolveRange(spec.getSheetRange(), spec.getOrientation());
+			String sheet = wb.findSheet(spec.getSheetName(), range);
+			if (sheet == null)
+				throw new ServiceException("The following sheet doesn't exist: " + spec.getSheetName());
+			sheets.add(sheet);
+			ranges.add(range);
+		}
+
+		List<BatchExtraction> extractions = new ArrayList<>();
+		for (int i = 0; i < specs.size(); i++) {
+			String sheet = sheets.get(i);
+			RangeReference range = ranges.get(i);
+			BatchExtraction extraction = new BatchExtraction(QUEUE_ROWS);
+			extraction.setFuture(pool.submit(() -> extraction.run(wb, sheet, range)));
+			extractions.add(extraction);
+		}
+		return extractions;
+	}
+
+	/**
+	 * Cancels the extractions and waits for the running ones to stop, so that the workbook can be closed.
+	 */
+	public static void stop(List<BatchExtraction> extractions) {
+		for (BatchExtraction extraction : extractions)
+			extraction.cancel();
+		for (BatchExtraction extraction : extractions)
+			extraction.await();
+	}
+
+	@PreDestroy
+	public void destroy() {
+		pool.shutdownNow();
+	}
+
+}
@@ -0,0 +1,153 @@
+package gov.cdc.foundation.xlsx;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.poi.hssf.usermodel.HSSFDateUtil;
+import org.apache.poi.ss.format.CellDateFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+
+import gov.cdc.helper.common.ServiceException;
+
+/**
+ * Turns the raw content of a `<c>` element into the same strings as the ones produced for the cells of a full workbook.
+ * Dates can also be written as ISO-8601 instead of with the number format of the cell.
+ */
+public class CellValueFormatter {
+
+	// Excel counts 1900-02-29, which doesn't exist, so the serial numbers before 61 are shifted by one day
+	private static final LocalDate EPOCH = LocalDate.of(1899, 12, 30);
+	private static final LocalDate EPOCH_BEFORE_MARCH_1900 = LocalDate.of(1899, 12, 31);
+	private static final long MILLIS_PER_DAY = 86400000L;
+
+	private static final DateStyle NOT_A_DATE = new DateStyle(null);
+
+	private final SharedStringsStore strings;
+	private final StylesTable styles;
+	private final boolean isoDates;
+
+	// The format strings are only parsed once per style
+	private final Map<Integer, DateStyle> dateStyles = new ConcurrentHashMap<>();
+	private final Map<String, DateStyle> dateFormats = new ConcurrentHashMap<>();
+	private final LongAdder formatted = new LongAdder();
+
+	public CellValueFormatter(SharedStringsStore strings, StylesTable styles, boolean isoDates) {
+		this.strings = strings;
+		this.styles = styles;
+		this.isoDates = isoDates;
+	}
+
+	/**
+	 * Returns true if dates must be written as ISO-8601, false if they use the number format of the cell.
+	 */
+	public static boolean isIso(String dateFormat) throws ServiceException {
+		if (dateFormat == null || dateFormat.isEmpty() || "excel".equalsIgnoreCase(dateFormat))
+			return false;
+		else if ("iso".equalsIgnoreCase(dateFormat))
+			return true;
+		else
+			throw new ServiceException("The date format must be `excel` or `iso`.");
+	}
+
+	public String format(String type, String styleIndex, boolean formula, String value, String inlineValue) {
+		formatted.increment();
+		if ("s".equals(type))
+			return value.isEmpty() || strings == null ? "" : strings.getEntryAt(Integer.parseInt(value));
+		else if ("inlineStr".equals(type))
+			return inlineValue;
+		else if ("str".equals(type) || "d".equals(type))
+			return value;
+		else if ("b".equals(type))
+			return Boolean.toString("1".equals(value));
+		else if ("e".equals(type))
+			return "";
+		else if (value.isEmpty())
+			return formula ? Double.toString(0.0) : "";
+		else
+			return numericToStr(Double.parseDouble(value), styleIndex);
+	}
+
+	/**
+	 * The number of cells formatted so far.
+	 */
+	public long getFormattedCells() {
+		return formatted.sum();
+	}
+
+	/**
+	 * Returns true if `format` would return an empty string, without formatting the value.
+	 */
+	public boolean isEmpty(String type, boolean formula, String value, String inlineValue) {
+		if ("s".equals(type))
+			return value.isEmpty() || strings == null || strings.isEmptyAt(Integer.parseInt(value));
+		else if ("inlineStr".equals(type))
+			return inlineValue.isEmpty();
+		else if ("str".equals(type) || "d".equals(type))
+			return value.isEmpty();
+		else if ("b".equals(type))
+			return false;
+		else if ("e".equals(type))
+			return true;
+		else
+			return value.isEmpty() && !formula;
+	}
+
+	private String numericToStr(double value, String styleIndex) {
+		DateStyle style = getDateStyle(styleIndex);
+		if (style != NOT_A_DATE && DateUtil.isValidExcelDate(value))
+			return isoDates ? dateToIso(value) : style.format(value);
+		else
+			return Double.toString(value);
+	}
+
+	private DateStyle getDateStyle(String styleIndex) {
+		if (styles == null || styles.getNumCellStyles() == 0)
+			return NOT_A_DATE;
+		int index = styleIndex == null || styleIndex.isEmpty() ? 0 : Integer.parseInt(styleIndex);
+		return dateStyles.computeIfAbsent(index, this::resolveDateStyle);
+	}
+
+	private DateStyle resolveDateStyle(int index) {
+		XSSFCellStyle style = styles.getStyleAt(index);
+		if (style == null || !DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString()))
+			return NOT_A_DATE;
+		return dateFormats.computeIfAbsent(style.getDataFormatString(), fmt -> new DateStyle(new CellDateFormatter(fmt)));
+	}
+
+	private static String dateToIso(double value) {
+		int days = (int) value;
+		long millis = Math.round((value - days) * MILLIS_PER_DAY);
+		if (millis == MILLIS_PER_DAY) {
+			days++;
+			millis = 0;
+		}
+		LocalDate date = (days < 61 ? EPOCH_BEFORE_MARCH_1900 : EPOCH).plusDays(days);
+		if (millis == 0)
+			return date.toString();
+		return LocalDateTime.of(date, LocalTime.ofNanoOfDay(millis * 1000000L)).toString();
+	}
+
+	private static class DateStyle {
+
+		private final CellDateFormatter formatter;
+
+		DateStyle(CellDateFormatter formatter) {
+			this.formatter = formatter;
+		}
+
+		// The formatter wraps a SimpleDateFormat, which can't be used by two threads at once
+		String format(double value) {
+			synchronized (formatter) {
+				return formatter.format(HSSFDateUtil.getJavaDate(value));
+			}
+		}
+
+	}
+
+}
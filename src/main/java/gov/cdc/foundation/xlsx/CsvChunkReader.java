@@ -0,0 +1,88 @@
+package gov.cdc.foundation.xlsx;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Splits a CSV stream in chunks of whole records, so that the chunks can be parsed independently.
+ * Quotes are tracked the same way as the `EXCEL` format does: a quote only opens a quoted field at the start of the
+ * field, and two quotes in a quoted field are an escaped quote, so line breaks in quoted fields never end a chunk.
+ */
+class CsvChunkReader {
+
+	private static final int FIELD_START = 0;
+	private static final int UNQUOTED = 1;
+	private static final int QUOTED = 2;
+	// A quote in a quoted field, either the end of the field or the first half of an escaped quote
+	private static final int QUOTE = 3;
+
+	private final Reader reader;
+	private final int chunkSize;
+	private final char[] buffer = new char[8192];
+	private int pos;
+	private int limit;
+	private int state = FIELD_START;
+	// The last record ended with \r, the chunk can't be cut before knowing if \n follows
+	private boolean cr;
+
+	CsvChunkReader(Reader reader, int chunkSize) {
+		this.reader = reader;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Returns the next records, at least `chunkSize` characters unless the end of the stream is reached, or null.
+	 */
+	String next() throws IOException {
+		StringBuilder chunk = new StringBuilder();
+		while (true) {
+			if (pos == limit) {
+				limit = reader.read(buffer, 0, buffer.length);
+				pos = 0;
+				if (limit <= 0) {
+					limit = 0;
+					return chunk.length() == 0 ? null : chunk.toString();
+				}
+			}
+
+			int start = pos;
+			while (pos < limit) {
+				char c = buffer[pos];
+				if (cr) {
+					cr = false;
+					if (c != '\n' && chunk.length() + pos - start >= chunkSize)
+						return chunk.append(buffer, start, pos - start).toString();
+				}
+				pos++;
+				if (endsRecord(c)) {
+					if (c == '\r')
+						cr = true;
+					else if (chunk.length() + pos - start >= chunkSize)
+						return chunk.append(buffer, start, pos - start).toString();
+				}
+			}
+			chunk.append(buffer, start, pos - start);
+		}
+	}
+
+	private boolean endsRecord(char c) {
+		if (state == QUOTED) {
+			if (c == '"')
+				state = QUOTE;
+			return false;
+		}
+
+		if (c == '\n' || c == '\r') {
+			state = FIELD_START;
+			return true;
+		}
+		if (c == ',')
+			state = FIELD_START;
+		else if (c == '"' && (state == FIELD_START || state == QUOTE))
+			state = QUOTED;
+		else
+			state = UNQUOTED;
+		return false;
+	}
+
+}
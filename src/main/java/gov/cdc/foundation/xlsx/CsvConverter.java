@@ -0,0 +1,122 @@
+package gov.cdc.foundation.xlsx;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.log4j.Logger;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import gov.cdc.foundation.metrics.ConversionTimer;
+import gov.cdc.helper.common.ServiceException;
+
+/**
+ * Converts a CSV file to a single sheet workbook, streaming the rows to temp files.
+ * The input is split in chunks of whole records which are parsed in parallel, and the rows are added to the sheet
+ * in order by the calling thread. At most two chunks per parsing thread are kept in memory.
+ */
+@Component
+public class CsvConverter {
+
+	private static final Logger logger = Logger.getLogger(CsvConverter.class);
+
+	private final int windowSize;
+	private final boolean compressTempFiles;
+	private final int chunkSize;
+	private final int maxPending;
+	private final ForkJoinPool pool;
+
+	public CsvConverter(
+		@Value("${xlsx.csv.window-size}") int windowSize, @Value("${xlsx.csv.compress-temp-files}") boolean compressTempFiles,
+		@Value("${xlsx.csv.chunk-size}") int chunkSize, @Value("${xlsx.csv.parallelism}") int parallelism
+	) {
+		logger.debug("Creating CSV converter...");
+		this.windowSize = windowSize;
+		this.compressTempFiles = compressTempFiles;
+		this.chunkSize = chunkSize;
+		this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+		this.maxPending = 2 * pool.getParallelism();
+	}
+
+	/**
+	 * Returns the charset of the CSV files, UTF-8 if none is provided.
+	 */
+	public static Charset charsetOf(String charset) throws ServiceException {
+		if (charset == null || charset.isEmpty())
+			return StandardCharsets.UTF_8;
+		try {
+			return Charset.forName(charset);
+		} catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+			throw new ServiceException("The following charset is not supported: " + charset);
+		}
+	}
+
+	/**
+	 * The workbook must be closed with `close` to delete its temp files.
+	 * With `inferTypes`, numbers, booleans and dates become typed cells instead of strings.
+	 */
+	public SXSSFWorkbook convert(InputStream is, Charset charset, String sheetName, boolean inferTypes, ConversionTimer timer) throws Exception {
+		// Only the last `windowSize` rows are kept in memory, the others are flushed to temp files
+		SXSSFWorkbook wb = new SXSSFWorkbook(null, windowSize, compressTempFiles);
+		Deque<Future<List<CSVRecord>>> pending = new ArrayDeque<>();
+		try {
+			CsvSheetWriter writer = new CsvSheetWriter(wb, wb.createSheet(sheetName), inferTypes, timer);
+			CsvChunkReader chunks = new CsvChunkReader(new InputStreamReader(is, charset), chunkSize);
+			String chunk;
+			while ((chunk = chunks.next()) != null) {
+				String records = chunk;
+				pending.add(pool.submit(() -> CSVFormat.EXCEL.parse(new StringReader(records)).getRecords()));
+				if (pending.size() >= maxPending)
+					writer.write(get(pending.poll()));
+			}
+			while (!pending.isEmpty())
+				writer.write(get(pending.poll()));
+			writer.finish();
+			return wb;
+		} catch (Exception e) {
+			for (Future<List<CSVRecord>> records : pending)
+				records.cancel(true);
+			close(wb);
+			throw e;
+		}
+	}
+
+	private static List<CSVRecord> get(Future<List<CSVRecord>> records) throws Exception {
+		try {
+			return records.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		}
+	}
+
+	public static void close(SXSSFWorkbook wb) throws IOException {
+		// Delete the temp files backing the sheets
+		wb.dispose();
+		wb.close();
+	}
+
+	@PreDestroy
+	public void destroy() {
+		pool.shutdownNow();
+	}
+
+}
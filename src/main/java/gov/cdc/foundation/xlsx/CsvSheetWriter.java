@@ -0,0 +1,223 @@
+package gov.cdc.foundation.xlsx;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.csv.CSVRecord;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import gov.cdc.foundation.metrics.ConversionTimer;
+
+/**
+ * Adds the CSV records to a sheet, in order. Without type inference every field is a string cell.
+ * With type inference, the type of each column is inferred from the first `SAMPLE_ROWS` rows, the first row
+ * excluded since it's usually a header: numbers, booleans and ISO-8601 dates and date-times become typed cells,
+ * and the values that don't match the type of their column stay strings.
+ */
+class CsvSheetWriter {
+
+	private static final int SAMPLE_ROWS = 1000;
+
+	// Doubles hold 15 significant digits, longer numbers (identifiers, card numbers...) stay strings
+	private static final int MAX_DIGITS = 15;
+
+	private static final LocalDate EPOCH = LocalDate.of(1899, 12, 30);
+	private static final double NANOS_PER_DAY = 86400e9;
+
+	enum ColumnType { STRING, NUMBER, BOOLEAN, DATE, DATE_TIME }
+
+	private final SXSSFWorkbook wb;
+	private final Sheet sheet;
+	private final ConversionTimer timer;
+	private List<CSVRecord> sample;
+	private ColumnType[] types;
+	private CellStyle dateStyle;
+	private CellStyle dateTimeStyle;
+	private int rowNum;
+
+	CsvSheetWriter(SXSSFWorkbook wb, Sheet sheet, boolean inferTypes, ConversionTimer timer) {
+		this.wb = wb;
+		this.sheet = sheet;
+		this.timer = timer;
+		this.sample = inferTypes ? new ArrayList<>() : null;
+	}
+
+	void write(List<CSVRecord> records) {
+		if (sample == null) {
+			for (CSVRecord record : records)
+				writeRow(record);
+			return;
+		}
+
+		// Hold the rows until the sample is complete
+		sample.addAll(records);
+		if (sample.size() >= SAMPLE_ROWS)
+			flushSample();
+	}
+
+	void finish() {
+		if (sample != null)
+			flushSample();
+	}
+
+	private void flushSample() {
+		types = infer(sample);
+		// The styles are shared by all the cells, a workbook can only hold 64000 of them
+		dateStyle = wb.createCellStyle();
+		dateStyle.setDataFormat(wb.createDataFormat().getFormat("yyyy-mm-dd"));
+		dateTimeStyle = wb.createCellStyle();
+		dateTimeStyle.setDataFormat(wb.createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+
+		List<CSVRecord> records = sample;
+		sample = null;
+		for (CSVRecord record : records)
+			writeRow(record);
+	}
+
+	static ColumnType[] infer(List<CSVRecord> records) {
+		int cols = 0;
+		for (CSVRecord record : records)
+			cols = Math.max(cols, record.size());
+
+		ColumnType[] types = new ColumnType[cols];
+		for (int i = records.size() > 1 ? 1 : 0; i < records.size(); i++) {
+			CSVRecord record = records.get(i);
+			for (int c = 0; c < record.size(); c++) {
+				String value = record.get(c);
+				if (value.isEmpty())
+					continue;
+				ColumnType type = typeOf(value);
+				if (types[c] == null || types[c] == type)
+					types[c] = type;
+				else if (isDate(types[c]) && isDate(type))
+					types[c] = ColumnType.DATE_TIME;
+				else
+					types[c] = ColumnType.STRING;
+			}
+		}
+		for (int c = 0; c < cols; c++)
+			if (types[c] == null)
+				types[c] = ColumnType.STRING;
+		return types;
+	}
+
+	static ColumnType typeOf(String value) {
+		if (isNumber(value))
+			return ColumnType.NUMBER;
+		else if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value))
+			return ColumnType.BOOLEAN;
+		else if (parseDateTime(value) != null)
+			return value.length() == 10 ? ColumnType.DATE : ColumnType.DATE_TIME;
+		else
+			return ColumnType.STRING;
+	}
+
+	private static boolean isDate(ColumnType type) {
+		return type == ColumnType.DATE || type == ColumnType.DATE_TIME;
+	}
+
+	private void writeRow(CSVRecord record) {
+		Row currentRow = sheet.createRow(rowNum);
+		for( int i = 0; i < record.size(); i ++ ) {
+			String value = record.get(i);
+			ColumnType type = types == null || i >= types.length ? ColumnType.STRING : types[i];
+			if (type == ColumnType.STRING)
+				currentRow.createCell(i).setCellValue(value);
+			else if (!value.isEmpty())
+				writeTyped(currentRow, i, type, value);
+		}
+		timer.count(1, record.size());
+		rowNum++;
+	}
+
+	private void writeTyped(Row row, int col, ColumnType type, String value) {
+		if (type == ColumnType.NUMBER && isNumber(value)) {
+			row.createCell(col).setCellValue(Double.parseDouble(value));
+			return;
+		} else if (type == ColumnType.BOOLEAN && ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value))) {
+			row.createCell(col).setCellValue("true".equalsIgnoreCase(value));
+			return;
+		} else if (isDate(type)) {
+			LocalDateTime date = parseDateTime(value);
+			if (date != null && !date.toLocalDate().isBefore(LocalDate.of(1900, 1, 1))) {
+				row.createCell(col).setCellValue(toExcelDate(date));
+				row.getCell(col).setCellStyle(type == ColumnType.DATE ? dateStyle : dateTimeStyle);
+				return;
+			}
+		}
+		row.createCell(col).setCellValue(value);
+	}
+
+	/**
+	 * Plain decimal numbers only: no leading zeros, which are usually codes, no `NaN`, no hexadecimal.
+	 */
+	static boolean isNumber(String value) {
+		int i = 0;
+		int len = value.length();
+		if (i < len && value.charAt(i) == '-')
+			i++;
+		int intStart = i;
+		while (i < len && value.charAt(i) >= '0' && value.charAt(i) <= '9')
+			i++;
+		int intDigits = i - intStart;
+		if (intDigits == 0 || (intDigits > 1 && value.charAt(intStart) == '0'))
+			return false;
+
+		int fracDigits = 0;
+		if (i < len && value.charAt(i) == '.') {
+			i++;
+			int fracStart = i;
+			while (i < len && value.charAt(i) >= '0' && value.charAt(i) <= '9')
+				i++;
+			fracDigits = i - fracStart;
+			if (fracDigits == 0)
+				return false;
+		}
+		if (intDigits + fracDigits > MAX_DIGITS)
+			return false;
+
+		if (i < len && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+			i++;
+			if (i < len && (value.charAt(i) == '+' || value.charAt(i) == '-'))
+				i++;
+			int expStart = i;
+			while (i < len && value.charAt(i) >= '0' && value.charAt(i) <= '9')
+				i++;
+			if (i == expStart || i - expStart > 2)
+				return false;
+		}
+		return i == len;
+	}
+
+	/**
+	 * Parses `yyyy-MM-dd` and `yyyy-MM-ddTHH:mm[:ss[.SSS]]`, returns null for anything else.
+	 */
+	static LocalDateTime parseDateTime(String value) {
+		// Cheap check first, most values are not dates
+		if (value.length() < 10 || value.charAt(4) != '-' || value.charAt(7) != '-')
+			return null;
+		try {
+			if (value.length() == 10)
+				return LocalDate.parse(value).atStartOfDay();
+			return LocalDateTime.parse(value);
+		} catch (DateTimeParseException e) {
+			return null;
+		}
+	}
+
+	static double toExcelDate(LocalDateTime date) {
+		long days = ChronoUnit.DAYS.between(EPOCH, date.toLocalDate());
+		// Excel counts 1900-02-29, which doesn't exist, so the days before March 1900 are shifted by one
+		if (days < 61)
+			days--;
+		return days + date.toLocalTime().toNanoOfDay() / NANOS_PER_DAY;
+	}
+
+}
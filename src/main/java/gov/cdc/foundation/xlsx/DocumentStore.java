@@ -0,0 +1,96 @@
+package gov.cdc.foundation.xlsx;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import gov.cdc.helper.common.ServiceException;
+
+/**
+ * Keeps uploaded workbooks on the local disk until they haven't been used for `ttl` seconds.
+ */
+@Component
+public class DocumentStore {
+
+	private static final Logger logger = Logger.getLogger(DocumentStore.class);
+
+	private final WorkbookCache workbookCache;
+	private final long ttl;
+	private final File directory;
+	private final Cache<String, StoredDocument> documents;
+	private final ScheduledExecutorService cleaner;
+
+	public DocumentStore(WorkbookCache workbookCache, @Value("${xlsx.documents.ttl}") long ttl) throws IOException {
+		logger.debug("Creating document store...");
+		this.workbookCache = workbookCache;
+		this.ttl = ttl;
+		this.directory = Files.createTempDirectory("fdns-msft-documents").toFile();
+		this.documents = CacheBuilder.newBuilder()
+				.expireAfterAccess(ttl, TimeUnit.SECONDS)
+				.removalListener((RemovalListener<String, StoredDocument>) notification -> notification.getValue().delete())
+				.build();
+
+		// Expired entries are only removed on access, so clean up regularly to delete the files
+		this.cleaner = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("document-store-cleaner").build());
+		this.cleaner.scheduleWithFixedDelay(documents::cleanUp, 1, 1, TimeUnit.MINUTES);
+	}
+
+	public StoredDocument store(MultipartFile file) throws IOException {
+		String id = UUID.randomUUID().toString();
+		File target = new File(directory, id);
+		file.transferTo(target);
+
+		StoredDocument document = new StoredDocument(id, file.getOriginalFilename(), target, WorkbookCache.hash(new FileSystemResource(target)));
+		documents.put(id, document);
+		return document;
+	}
+
+	public StoredDocument get(String id) throws ServiceException {
+		StoredDocument document = documents.getIfPresent(id);
+		if (document == null)
+			throw new ServiceException("The following document doesn't exist: " + id);
+		return document;
+	}
+
+	public WorkbookHandle open(String id) throws ServiceException {
+		StoredDocument document = get(id);
+		WorkbookHandle handle = workbookCache.open(new FileSystemResource(document.getFile()), document.getHash());
+		handle.setDocument(document);
+		return handle;
+	}
+
+	public void delete(String id) throws ServiceException {
+		get(id);
+		documents.invalidate(id);
+	}
+
+	public long getTtl() {
+		return ttl;
+	}
+
+	@PreDestroy
+	public void destroy() {
+		cleaner.shutdownNow();
+		documents.invalidateAll();
+		FileUtils.deleteQuietly(directory);
+	}
+
+}
@@ -0,0 +1,36 @@
+package gov.cdc.foundation.xlsx;
+
+/**
+ * One extraction of a batch: a sheet, a range and an orientation.
+ */
+public class ExtractionSpec {
+
+	private String sheetName;
+	private String sheetRange;
+	private String orientation;
+
+	public String getSheetName() {
+		return sheetName;
+	}
+
+	public void setSheetName(String sheetName) {
+		this.sheetName = sheetName;
+	}
+
+	public String getSheetRange() {
+		return sheetRange;
+	}
+
+	public void setSheetRange(String sheetRange) {
+		this.sheetRange = sheetRange;
+	}
+
+	public String getOrientation() {
+		return orientation == null || orientation.isEmpty() ? SheetRange.PORTRAIT : orientation;
+	}
+
+	public void setOrientation(String orientation) {
+		this.orientation = orientation;
+	}
+
+}
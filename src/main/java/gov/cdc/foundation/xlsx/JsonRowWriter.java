@@ -0,0 +1,56 @@
+package gov.cdc.foundation.xlsx;
+
+import java.io.IOException;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes the extracted rows as `{"items": [...], "rows": n, "cols": m}`.
+ * The counts are only known at the end, so they are written after the items.
+ */
+public class JsonRowWriter implements SheetRowHandler {
+
+	private final JsonGenerator generator;
+	private int rows = 0;
+	private int cols = 0;
+
+	public JsonRowWriter(JsonGenerator generator) {
+		this.generator = generator;
+	}
+
+	public void start() throws IOException {
+		generator.writeStartObject();
+		generator.writeArrayFieldStart("items");
+	}
+
+	/**
+	 * Starts the object with the given fields before the items.
+	 */
+	public void start(Map<String, String> fields) throws IOException {
+		generator.writeStartObject();
+		for (Map.Entry<String, String> field : fields.entrySet())
+			generator.writeStringField(field.getKey(), field.getValue());
+		generator.writeArrayFieldStart("items");
+	}
+
+	@Override
+	public void row(String[] values) throws IOException {
+		if (rows == 0)
+			cols = values.length;
+		generator.writeStartArray();
+		for (String value : values)
+			generator.writeString(value);
+		generator.writeEndArray();
+		rows++;
+	}
+
+	public void end() throws IOException {
+		generator.writeEndArray();
+		generator.writeNumberField("rows", rows);
+		generator.writeNumberField("cols", cols);
+		generator.writeEndObject();
+		generator.flush();
+	}
+
+}
@@ -0,0 +1,98 @@
+package gov.cdc.foundation.xlsx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.xml.sax.SAXException;
+
+import gov.cdc.foundation.helper.StopReadingException;
+
+/**
+ * Keeps the first non-empty rows of a sheet and stops the reading as soon as it has `limit` of them.
+ * The used range is inferred from the non-empty cells of these rows, and the rows are cut to its columns.
+ */
+public class PreviewExtractor implements SheetEventListener {
+
+	private static final int INITIAL_ROW_CAPACITY = 16;
+
+	private final int limit;
+	private final List<String[]> rows = new ArrayList<>();
+
+	private String[] current;
+	private boolean currentEmpty;
+	private int firstRow = -1;
+	private int lastRow = -1;
+	private int firstCol = Integer.MAX_VALUE;
+	private int lastCol = -1;
+
+	public PreviewExtractor(int limit) {
+		this.limit = limit;
+	}
+
+	@Override
+	public boolean startRow(int rowIndex) {
+		current = new String[INITIAL_ROW_CAPACITY];
+		currentEmpty = true;
+		return true;
+	}
+
+	@Override
+	public boolean acceptCell(int columnIndex) {
+		return true;
+	}
+
+	@Override
+	public void cell(int columnIndex, String value) {
+		if (value.isEmpty())
+			return;
+		if (columnIndex >= current.length)
+			current = Arrays.copyOf(current, Math.max(columnIndex + 1, current.length * 2));
+		current[columnIndex] = value;
+		currentEmpty = false;
+		firstCol = Math.min(firstCol, columnIndex);
+		lastCol = Math.max(lastCol, columnIndex);
+	}
+
+	@Override
+	public void endRow(int rowIndex) throws SAXException {
+		if (currentEmpty)
+			return;
+		if (firstRow < 0)
+			firstRow = rowIndex;
+		lastRow = rowIndex;
+		rows.add(current);
+		if (rows.size() >= limit)
+			throw new StopReadingException();
+	}
+
+	@Override
+	public void endSheet() {
+		// The rows are cut to the used range when they are requested
+	}
+
+	/**
+	 * Returns the non-empty rows, from the first to the last used column.
+	 */
+	public List<String[]> getRows() {
+		List<String[]> result = new ArrayList<>();
+		for (String[] row : rows) {
+			String[] cut = new String[lastCol - firstCol + 1];
+			for (int i = 0; i < cut.length; i++)
+				cut[i] = firstCol + i < row.length && row[firstCol + i] != null ? row[firstCol + i] : "";
+			result.add(cut);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the range covering the non-empty cells, like `B2:E21`, or null if the sheet is empty.
+	 */
+	public String getRange() {
+		if (rows.isEmpty())
+			return null;
+		return new CellRangeAddress(firstRow, lastRow, firstCol, lastCol).formatAsString();
+	}
+
+}
@@ -0,0 +1,184 @@
+package gov.cdc.foundation.xlsx;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.xml.sax.SAXException;
+
+import gov.cdc.foundation.helper.StopReadingException;
+
+/**
+ * Applies the `portrait` or `landscape` semantics of a sheet range to the cells read from a sheet.
+ * In portrait mode, rows are handed over as soon as they are read and the reading stops at the first missing or empty row.
+ * In landscape mode, the rows of the range are kept while the non-empty columns are tracked, so that they are read only once.
+ * A portrait extraction can also be read by pages: the rows before the page are only checked for a value,
+ * so that the pages stop at the same row as the whole extraction.
+ */
+public class RangeExtractor implements SheetEventListener {
+
+	private static final int INITIAL_ROW_CAPACITY = 16;
+
+	private final SheetRange range;
+	private final SheetRowHandler handler;
+	private final int skip;
+	private final int limit;
+
+	private int nextRow;
+	private String[] current;
+	private boolean currentEmpty;
+	private boolean limited;
+	private boolean ended;
+
+	// Landscape: the rows of the range, by offset from the start row, and the columns holding at least one value
+	private List<String[]> buffer = new ArrayList<>();
+	private BitSet nonEmptyCols = new BitSet();
+	private int currentLength;
+
+	public RangeExtractor(SheetRange range, SheetRowHandler handler) {
+		this(range, handler, 0, 0);
+	}
+
+	/**
+	 * Skips the first `skip` rows of a portrait extraction and stops after `limit` rows, 0 meaning no limit.
+	 */
+	public RangeExtractor(SheetRange range, SheetRowHandler handler, int skip, int limit) {
+		this.range = range;
+		this.handler = handler;
+		this.skip = skip;
+		this.limit = limit;
+		this.nextRow = range.getStartRow();
+	}
+
+	@Override
+	public boolean startRow(int rowIndex) throws SAXException {
+		if (rowIndex < range.getStartRow())
+			return false;
+
+		if (range.isPortrait()) {
+			// A missing row ends the extraction
+			if (rowIndex != nextRow) {
+				ended = true;
+				throw new StopReadingException();
+			}
+			current = new String[range.getEndCol() - range.getStartCol() + 1];
+			Arrays.fill(current, "");
+			currentEmpty = true;
+		} else {
+			if (rowIndex > range.getEndRow())
+				throw new StopReadingException();
+			current = new String[INITIAL_ROW_CAPACITY];
+			currentLength = 0;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean acceptCell(int columnIndex) {
+		if (range.isPortrait())
+			return !isSkipping() && columnIndex >= range.getStartCol() && columnIndex <= range.getEndCol();
+		else
+			return columnIndex >= range.getStartCol();
+	}
+
+	@Override
+	public boolean watchCell(int columnIndex) {
+		return range.isPortrait() && isSkipping() && columnIndex >= range.getStartCol() && columnIndex <= range.getEndCol();
+	}
+
+	@Override
+	public void nonEmptyCell(int columnIndex) {
+		currentEmpty = false;
+	}
+
+	@Override
+	public void cell(int columnIndex, String value) {
+		int offset = columnIndex - range.getStartCol();
+		if (!range.isPortrait()) {
+			if (offset >= current.length)
+				current = Arrays.copyOf(current, Math.max(offset + 1, current.length * 2));
+			currentLength = Math.max(currentLength, offset + 1);
+			if (!value.isEmpty())
+				nonEmptyCols.set(offset);
+		}
+		current[offset] = value;
+		currentEmpty = currentEmpty && value.isEmpty();
+	}
+
+	@Override
+	public void endRow(int rowIndex) throws SAXException {
+		if (rowIndex < range.getStartRow())
+			return;
+
+		if (!range.isPortrait()) {
+			int offset = rowIndex - range.getStartRow();
+			while (buffer.size() <= offset)
+				buffer.add(null);
+			buffer.set(offset, Arrays.copyOf(current, currentLength));
+			return;
+		}
+
+		if (currentEmpty) {
+			ended = true;
+			throw new StopReadingException();
+		}
+
+		if (!isSkipping())
+			emit(current);
+		nextRow++;
+		if (limit > 0 && nextRow - range.getStartRow() - skip >= limit) {
+			limited = true;
+			throw new StopReadingException();
+		}
+	}
+
+	@Override
+	public void endSheet() throws SAXException {
+		if (range.isPortrait()) {
+			// The rows after the last one of the sheet are missing
+			ended = ended || !limited;
+			return;
+		}
+
+		// The columns stop before the first one that is blank in all the rows
+		int width = nonEmptyCols.nextClearBit(0);
+
+		for (int offset = 0; offset <= range.getEndRow() - range.getStartRow(); offset++) {
+			String[] r = offset < buffer.size() ? buffer.get(offset) : null;
+			String[] row = new String[width];
+			for (int i = 0; i < width; i++)
+				row[i] = r != null && i < r.length && r[i] != null ? r[i] : "";
+			emit(row);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * The number of rows read from the start of a portrait range, all of them present and non-empty.
+	 */
+	public int getRowsRead() {
+		return nextRow - range.getStartRow();
+	}
+
+	/**
+	 * Whether a portrait extraction has reached the row ending it, rather than its limit.
+	 */
+	public boolean isEnded() {
+		return ended;
+	}
+
+	private boolean isSkipping() {
+		return nextRow - range.getStartRow() < skip;
+	}
+
+	private void emit(String[] row) throws SAXException {
+		try {
+			handler.row(row);
+		} catch (IOException e) {
+			throw new SAXException(e);
+		}
+	}
+
+}
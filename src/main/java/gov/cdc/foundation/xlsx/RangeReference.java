@@ -0,0 +1,100 @@
+package gov.cdc.foundation.xlsx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import gov.cdc.helper.common.ServiceException;
+
+/**
+ * A sheet range expression: one or several comma-separated areas like `A1:D1`, `A:D` or `3:10`,
+ * optionally prefixed by a sheet name like `'My sheet'!$A$1:$D$1`.
+ */
+public class RangeReference {
+
+	private final String sheetName;
+	private final List<SheetRange> areas;
+
+	private RangeReference(String sheetName, List<SheetRange> areas) {
+		this.sheetName = sheetName;
+		this.areas = Collections.unmodifiableList(areas);
+	}
+
+	public static RangeReference parse(String reference, String orientation) throws ServiceException {
+		if (reference == null || reference.isEmpty())
+			throw new ServiceException("The sheet range expression is not valid.");
+		boolean portrait = SheetRange.isPortrait(orientation);
+
+		String sheetName = null;
+		List<SheetRange> areas = new ArrayList<>();
+		int[] area = new int[A1Parser.AREA_SIZE];
+		int start = 0;
+		while (start <= reference.length()) {
+			int end = nextSeparator(reference, start);
+
+			// Sheet prefix
+			int areaStart = start;
+			int bang = reference.lastIndexOf('!', end - 1);
+			if (bang >= start) {
+				String name = unquote(reference.substring(start, bang));
+				if (sheetName != null && !sheetName.equals(name))
+					throw new ServiceException("All the areas of the sheet range must be on the same sheet.");
+				sheetName = name;
+				areaStart = bang + 1;
+			}
+
+			if (!A1Parser.parseArea(reference, areaStart, end, area))
+				throw new ServiceException("The sheet range expression is not valid.");
+			areas.add(SheetRange.of(area, portrait));
+			start = end + 1;
+		}
+		return new RangeReference(sheetName, areas);
+	}
+
+	/**
+	 * Returns true if the expression can only be the name of a defined range.
+	 */
+	public static boolean isName(String reference) {
+		if (reference == null || reference.isEmpty())
+			return false;
+		char first = reference.charAt(0);
+		if (!Character.isLetter(first) && first != '_' && first != '\\')
+			return false;
+		for (int i = 1; i < reference.length(); i++) {
+			char c = reference.charAt(i);
+			if (!Character.isLetterOrDigit(c) && c != '_' && c != '.' && c != '\\')
+				return false;
+		}
+		return !A1Parser.parseArea(reference, 0, reference.length(), new int[A1Parser.AREA_SIZE]);
+	}
+
+	/**
+	 * Sheet named in the expression, or null.
+	 */
+	public String getSheetName() {
+		return sheetName;
+	}
+
+	public List<SheetRange> getAreas() {
+		return areas;
+	}
+
+	private static int nextSeparator(String reference, int from) {
+		boolean quoted = false;
+		for (int i = from; i < reference.length(); i++) {
+			char c = reference.charAt(i);
+			if (c == '\'')
+				quoted = !quoted;
+			else if (c == ',' && !quoted)
+				return i;
+		}
+		return reference.length();
+	}
+
+	private static String unquote(String name) {
+		if (name.length() >= 2 && name.charAt(0) == '\'' && name.charAt(name.length() - 1) == '\'')
+			return name.substring(1, name.length() - 1).replace("''", "'");
+		return name;
+	}
+
+}
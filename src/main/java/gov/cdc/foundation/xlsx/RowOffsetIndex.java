@@ -0,0 +1,203 @@
+package gov.cdc.foundation.xlsx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+/**
+ * An uncompressed copy of a sheet part with the position of every `INTERVAL`th row, so that a page deep in the sheet
+ * is parsed from the closest row before it rather than from the start of the sheet.
+ * The positions are found by scanning the bytes for `<row` tags, which can't appear elsewhere as `<` is always escaped.
+ */
+public class RowOffsetIndex {
+
+	static final int INTERVAL = 1024;
+
+	private final File file;
+	// The XML declaration and the start tags before the first row, read again before each jump
+	private final long prefixLength;
+	private final int[] rows;
+	private final long[] offsets;
+	// Rows without `r` are numbered by the parser from the start of the part, they can't be jumped to
+	private final boolean numbered;
+
+	private RowOffsetIndex(File file, long prefixLength, int[] rows, long[] offsets, boolean numbered) {
+		this.file = file;
+		this.prefixLength = prefixLength;
+		this.rows = rows;
+		this.offsets = offsets;
+		this.numbered = numbered;
+	}
+
+	/**
+	 * Copies the sheet part to `target` and indexes its rows.
+	 */
+	public static RowOffsetIndex build(InputStream sheet, File target) throws IOException {
+		Scanner scanner = new Scanner();
+		try (OutputStream os = new BufferedOutputStream(new FileOutputStream(target))) {
+			byte[] buffer = new byte[65536];
+			int n;
+			while ((n = sheet.read(buffer)) > 0) {
+				os.write(buffer, 0, n);
+				for (int i = 0; i < n; i++)
+					scanner.next(buffer[i]);
+			}
+		} catch (IOException e) {
+			FileUtils.deleteQuietly(target);
+			throw e;
+		}
+
+		long prefixLength = scanner.firstRow < 0 ? target.length() : scanner.firstRow;
+		return new RowOffsetIndex(target, prefixLength, Arrays.copyOf(scanner.rows, scanner.size), Arrays.copyOf(scanner.offsets, scanner.size), scanner.numbered);
+	}
+
+	/**
+	 * Returns the sheet part from the closest indexed row before `row`, behind the start tags of the part.
+	 */
+	public InputStream open(int row) throws IOException {
+		int i = Arrays.binarySearch(rows, row);
+		if (i < 0)
+			i = -i - 2;
+		if (i < 0 || !numbered)
+			return new BufferedInputStream(new FileInputStream(file));
+
+		InputStream prefix = new BoundedInputStream(new FileInputStream(file), prefixLength);
+		FileInputStream rest = new FileInputStream(file);
+		rest.getChannel().position(offsets[i]);
+		return new BufferedInputStream(new SequenceInputStream(prefix, rest));
+	}
+
+	public int size() {
+		return rows.length;
+	}
+
+	void delete() {
+		FileUtils.deleteQuietly(file);
+	}
+
+	/**
+	 * Finds the `row` tags, with or without a namespace prefix, and their `r` attribute.
+	 */
+	private static class Scanner {
+
+		private static final int TEXT = 0;
+		private static final int NAME = 1;
+		private static final int ATTRIBUTES = 2;
+		private static final int TAG = 3;
+		private static final int MAX_NAME = 32;
+
+		private int state = TEXT;
+		private long position = -1;
+		private long tagStart;
+		private final byte[] name = new byte[MAX_NAME];
+		private int nameLength;
+		private final StringBuilder attributes = new StringBuilder();
+
+		private long firstRow = -1;
+		private int count;
+		private int lastRow = -1;
+		private boolean numbered = true;
+		private int size;
+		private int[] rows = new int[16];
+		private long[] offsets = new long[16];
+
+		void next(byte b) {
+			position++;
+			switch (state) {
+			case TEXT:
+				if (b == '<') {
+					tagStart = position;
+					nameLength = 0;
+					state = NAME;
+				}
+				break;
+			case NAME:
+				if (b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '>' || b == '/') {
+					if (isRow()) {
+						attributes.setLength(0);
+						state = ATTRIBUTES;
+						attribute(b);
+					} else
+						state = b == '>' ? TEXT : TAG;
+				} else if (b == ':')
+					nameLength = 0;
+				else if (nameLength < MAX_NAME)
+					name[nameLength++] = b;
+				else
+					state = TAG;
+				break;
+			case ATTRIBUTES:
+				attribute(b);
+				break;
+			default:
+				if (b == '>')
+					state = TEXT;
+			}
+		}
+
+		private boolean isRow() {
+			return nameLength == 3 && name[0] == 'r' && name[1] == 'o' && name[2] == 'w';
+		}
+
+		private void attribute(byte b) {
+			if (b != '>') {
+				attributes.append((char) (b & 0xff));
+				return;
+			}
+			state = TEXT;
+
+			int r = rowNumber(attributes);
+			if (r < 0)
+				numbered = false;
+			lastRow = r < 0 ? lastRow + 1 : r - 1;
+			if (firstRow < 0)
+				firstRow = tagStart;
+			if (count++ % INTERVAL == 0) {
+				if (size == rows.length) {
+					rows = Arrays.copyOf(rows, size * 2);
+					offsets = Arrays.copyOf(offsets, size * 2);
+				}
+				rows[size] = lastRow;
+				offsets[size] = tagStart;
+				size++;
+			}
+		}
+
+		/**
+		 * Returns the value of the `r` attribute, or -1 if it is missing.
+		 */
+		private static int rowNumber(CharSequence s) {
+			for (int i = 0; i < s.length(); i++) {
+				if (s.charAt(i) != 'r' || (i > 0 && !Character.isWhitespace(s.charAt(i - 1))))
+					continue;
+				int j = i + 1;
+				while (j < s.length() && Character.isWhitespace(s.charAt(j)))
+					j++;
+				if (j >= s.length() || s.charAt(j) != '=')
+					continue;
+				j++;
+				while (j < s.length() && Character.isWhitespace(s.charAt(j)))
+					j++;
+				if (j >= s.length() || (s.charAt(j) != '"' && s.charAt(j) != '\''))
+					continue;
+				int r = 0;
+				for (j++; j < s.length() && Character.isDigit(s.charAt(j)); j++)
+					r = r * 10 + (s.charAt(j) - '0');
+				return r;
+			}
+			return -1;
+		}
+
+	}
+
+}
@@ -0,0 +1,199 @@
+package gov.cdc.foundation.xlsx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import gov.cdc.helper.common.ServiceException;
+
+/**
+ * The columns to keep and the filters to apply on the rows of a portrait extraction.
+ * Columns are referenced by their letter (`C`) or by their header, the header being the first row of the range.
+ * A reference matching a header wins over a column letter.
+ * The rows can also be read by pages, `offset` rows below the start of the range.
+ */
+public class RowSelection {
+
+	private static final RowSelection ALL = new RowSelection(Collections.emptyList(), Collections.emptyList(), 0, 0);
+
+	private final List<String> columns;
+	private final List<Filter> filters;
+	private final int offset;
+	private final int limit;
+
+	private RowSelection(List<String> columns, List<Filter> filters, int offset, int limit) {
+		this.columns = columns;
+		this.filters = filters;
+		this.offset = offset;
+		this.limit = limit;
+	}
+
+	/**
+	 * Parses a comma-separated list of columns, filters written as `column:operator:value` and a page,
+	 * a `limit` of 0 meaning all the rows after `offset`.
+	 */
+	public static RowSelection parse(String columns, List<String> filters, int offset, int limit) throws ServiceException {
+		if (offset < 0 || limit < 0)
+			throw new ServiceException("The offset and the limit can't be negative.");
+
+		List<String> cols = new ArrayList<>();
+		if (columns != null)
+			for (String column : columns.split(",")) {
+				if (column.trim().isEmpty())
+					throw new ServiceException("The list of columns contains an empty column: " + columns);
+				cols.add(column.trim());
+			}
+
+		List<Filter> parsed = new ArrayList<>();
+		if (filters != null)
+			for (String filter : filters)
+				parsed.add(Filter.parse(filter));
+
+		boolean paged = offset > 0 || limit > 0;
+		if (paged && !(cols.isEmpty() && parsed.isEmpty()))
+			throw new ServiceException("The columns and the filters can't be combined with `offset` and `limit`.");
+		if (cols.isEmpty() && parsed.isEmpty() && !paged)
+			return ALL;
+		return new RowSelection(cols, parsed, offset, limit);
+	}
+
+	public boolean isEmpty() {
+		return columns.isEmpty() && filters.isEmpty() && !isPaged();
+	}
+
+	public boolean isPaged() {
+		return offset > 0 || limit > 0;
+	}
+
+	public int getOffset() {
+		return offset;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public List<String> getColumns() {
+		return columns;
+	}
+
+	public List<Filter> getFilters() {
+		return filters;
+	}
+
+	/**
+	 * Returns the offset of a column in the range, from its header or its letter.
+	 */
+	static int resolve(String column, String[] header, SheetRange range) throws ServiceException {
+		for (int i = 0; i < header.length; i++)
+			if (header[i].trim().equalsIgnoreCase(column))
+				return i;
+
+		boolean letters = column.length() <= 3;
+		for (int i = 0; i < column.length() && letters; i++)
+			letters = Character.isLetter(column.charAt(i)) && column.charAt(i) < 128;
+		if (!letters)
+			throw new ServiceException("The following column doesn't exist: " + column);
+
+		int col = A1Parser.columnOf(column);
+		if (col < range.getStartCol() || col > range.getEndCol())
+			throw new ServiceException("The following column is out of the range: " + column);
+		return col - range.getStartCol();
+	}
+
+	public static class Filter {
+
+		private final String column;
+		private final String operator;
+		private final String value;
+		private final double number;
+
+		private Filter(String column, String operator, String value, double number) {
+			this.column = column;
+			this.operator = operator;
+			this.value = value;
+			this.number = number;
+		}
+
+		static Filter parse(String filter) throws ServiceException {
+			String[] parts = filter.split(":", 3);
+			if (parts.length != 3 || parts[0].trim().isEmpty())
+				throw new ServiceException("The following filter is not valid, it must be `column:operator:value`: " + filter);
+
+			String operator = parts[1].trim().toLowerCase(Locale.ROOT);
+			double number = toNumber(parts[2]);
+			switch (operator) {
+			case "eq":
+			case "ne":
+			case "contains":
+				break;
+			case "gt":
+			case "ge":
+			case "lt":
+			case "le":
+				if (Double.isNaN(number))
+					throw new ServiceException("The following filter must compare with a number: " + filter);
+				break;
+			default:
+				throw new ServiceException("The following filter operator is not supported: " + parts[1]);
+			}
+			return new Filter(parts[0].trim(), operator, parts[2], number);
+		}
+
+		public String getColumn() {
+			return column;
+		}
+
+		/**
+		 * Tests a formatted cell value. `eq` and `ne` compare numbers by value when both sides are numbers,
+		 * `contains` ignores the case and the comparisons never match a cell that isn't a number.
+		 */
+		public boolean matches(String cell) {
+			switch (operator) {
+			case "eq":
+				return equalTo(cell);
+			case "ne":
+				return !equalTo(cell);
+			case "contains":
+				return cell.toLowerCase(Locale.ROOT).contains(value.toLowerCase(Locale.ROOT));
+			default:
+				double n = toNumber(cell);
+				if (Double.isNaN(n))
+					return false;
+				switch (operator) {
+				case "gt":
+					return n > number;
+				case "ge":
+					return n >= number;
+				case "lt":
+					return n < number;
+				default:
+					return n <= number;
+				}
+			}
+		}
+
+		private boolean equalTo(String cell) {
+			if (cell.equals(value))
+				return true;
+			if (Double.isNaN(number))
+				return false;
+			return toNumber(cell) == number;
+		}
+
+		private static double toNumber(String s) {
+			String trimmed = s.trim();
+			// Avoids the cost of an exception for the values that obviously aren't numbers
+			if (trimmed.isEmpty() || !(Character.isDigit(trimmed.charAt(0)) || trimmed.charAt(0) == '-' || trimmed.charAt(0) == '+' || trimmed.charAt(0) == '.'))
+				return Double.NaN;
+			try {
+				return Double.parseDouble(trimmed);
+			} catch (NumberFormatException e) {
+				return Double.NaN;
+			}
+		}
+
+	}
+
+}
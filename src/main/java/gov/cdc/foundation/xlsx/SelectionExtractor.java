@@ -0,0 +1,162 @@
+package gov.cdc.foundation.xlsx;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.xml.sax.SAXException;
+
+import gov.cdc.foundation.helper.StopReadingException;
+import gov.cdc.helper.common.ServiceException;
+
+/**
+ * Portrait extraction keeping only some columns and the rows matching the filters.
+ * The first row of the range is the header: it is read entirely to resolve the columns, and it is never filtered.
+ * The next rows only accept the projected and filtered cells, so the other cells are neither formatted nor written.
+ * As without a selection, the reading stops at the first row where every cell of the range is empty.
+ */
+public class SelectionExtractor implements SheetEventListener {
+
+	private final SheetRange range;
+	private final RowSelection selection;
+	private final SheetRowHandler handler;
+
+	private int nextRow;
+	private String[] current;
+	private boolean currentEmpty;
+
+	// Resolved from the header: null until it is read
+	private BitSet needed;
+	private int[] projection;
+	private int[] filterColumns;
+	private ServiceException error;
+
+	public SelectionExtractor(SheetRange range, RowSelection selection, SheetRowHandler handler) {
+		this.range = range;
+		this.selection = selection;
+		this.handler = handler;
+		this.nextRow = range.getStartRow();
+	}
+
+	@Override
+	public boolean startRow(int rowIndex) throws SAXException {
+		if (rowIndex < range.getStartRow())
+			return false;
+		// A missing row ends the extraction
+		if (rowIndex != nextRow)
+			throw new StopReadingException();
+		current = new String[range.getEndCol() - range.getStartCol() + 1];
+		Arrays.fill(current, "");
+		currentEmpty = true;
+		return true;
+	}
+
+	@Override
+	public boolean acceptCell(int columnIndex) {
+		if (columnIndex < range.getStartCol() || columnIndex > range.getEndCol())
+			return false;
+		return needed == null || needed.get(columnIndex - range.getStartCol());
+	}
+
+	/**
+	 * The other cells of the range are only checked for a value.
+	 */
+	@Override
+	public boolean watchCell(int columnIndex) {
+		return columnIndex >= range.getStartCol() && columnIndex <= range.getEndCol();
+	}
+
+	@Override
+	public void cell(int columnIndex, String value) {
+		current[columnIndex - range.getStartCol()] = value;
+		currentEmpty = currentEmpty && value.isEmpty();
+	}
+
+	@Override
+	public void nonEmptyCell(int columnIndex) {
+		currentEmpty = false;
+	}
+
+	@Override
+	public void endRow(int rowIndex) throws SAXException {
+		if (rowIndex < range.getStartRow())
+			return;
+
+		if (currentEmpty)
+			throw new StopReadingException();
+
+		if (needed == null) {
+			try {
+				resolve(current);
+			} catch (ServiceException e) {
+				error = e;
+				throw new StopReadingException();
+			}
+		} else if (!matches()) {
+			nextRow++;
+			return;
+		}
+
+		emit(current);
+		nextRow++;
+	}
+
+	@Override
+	public void endSheet() {
+		// Rows are handed over as they are read
+	}
+
+	/**
+	 * Throws the error met while resolving the columns, if any, once the sheet has been read.
+	 */
+	public void check() throws ServiceException {
+		if (error != null)
+			throw error;
+	}
+
+	private void resolve(String[] header) throws ServiceException {
+		List<String> columns = selection.getColumns();
+		List<RowSelection.Filter> filters = selection.getFilters();
+		BitSet cols = new BitSet();
+
+		if (columns.isEmpty()) {
+			projection = new int[header.length];
+			for (int i = 0; i < header.length; i++)
+				projection[i] = i;
+		} else {
+			projection = new int[columns.size()];
+			for (int i = 0; i < projection.length; i++)
+				projection[i] = RowSelection.resolve(columns.get(i), header, range);
+		}
+		for (int offset : projection)
+			cols.set(offset);
+
+		filterColumns = new int[filters.size()];
+		for (int i = 0; i < filterColumns.length; i++) {
+			filterColumns[i] = RowSelection.resolve(filters.get(i).getColumn(), header, range);
+			cols.set(filterColumns[i]);
+		}
+		needed = cols;
+	}
+
+	private boolean matches() {
+		List<RowSelection.Filter> filters = selection.getFilters();
+		for (int i = 0; i < filterColumns.length; i++)
+			if (!filters.get(i).matches(current[filterColumns[i]]))
+				return false;
+		return true;
+	}
+
+	private void emit(String[] row) throws SAXException {
+		String[] projected = new String[projection.length];
+		for (int i = 0; i < projection.length; i++)
+			projected[i] = row[projection[i]];
+		try {
+			handler.row(projected);
+		} catch (IOException e) {
+			throw new SAXException(e);
+		}
+	}
+
+}
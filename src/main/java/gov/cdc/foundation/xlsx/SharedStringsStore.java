@@ -0,0 +1,347 @@
+package gov.cdc.foundation.xlsx;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.util.SAXHelper;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * The shared strings table of a workbook, kept as UTF-8 records indexed by their offsets rather than as strings.
+ * The strings are only decoded when a cell needs them. Once the arrays of the records and of their offsets would take
+ * more than `heapLimit` bytes, the records are moved to temp files mapped in memory, so the heap used doesn't grow
+ * with the number of strings.
+ * As for inline strings, the phonetic runs are left out.
+ */
+public class SharedStringsStore implements Closeable {
+
+	// A record never spans two segments, so that it can be read from a single buffer
+	private static final int DEFAULT_SEGMENT_SHIFT = 30;
+	private static final int OFFSET_BYTES = 8;
+
+	private final long heapLimit;
+	private final int segmentShift;
+	private final int segmentSize;
+	private final int segmentMask;
+	private int size;
+
+	// Heap mode
+	private byte[] data = new byte[1024];
+	private long[] offsets = new long[64];
+	private int length;
+
+	// Mapped mode
+	private File dataFile;
+	private File offsetsFile;
+	private DataOutputStream dataOut;
+	private DataOutputStream offsetsOut;
+	private long position;
+	private MappedByteBuffer[] dataSegments;
+	private MappedByteBuffer[] offsetSegments;
+
+	private SharedStringsStore(long heapLimit, int segmentShift) {
+		this.heapLimit = heapLimit;
+		this.segmentShift = segmentShift;
+		this.segmentSize = 1 << segmentShift;
+		this.segmentMask = segmentSize - 1;
+	}
+
+	/**
+	 * Reads the shared strings part of a package, if any.
+	 */
+	public static SharedStringsStore read(OPCPackage pkg, long heapLimit) throws IOException, SAXException {
+		return read(pkg, heapLimit, DEFAULT_SEGMENT_SHIFT);
+	}
+
+	/**
+	 * Reads the shared strings with mapped segments of `1 << segmentShift` bytes, which must hold the longest record.
+	 */
+	public static SharedStringsStore read(OPCPackage pkg, long heapLimit, int segmentShift) throws IOException, SAXException {
+		if (segmentShift < 3 || segmentShift > DEFAULT_SEGMENT_SHIFT)
+			throw new IllegalArgumentException("The segments must be between 8 bytes and 1 GB.");
+		SharedStringsStore store = new SharedStringsStore(heapLimit, segmentShift);
+		try {
+			List<PackagePart> parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+			if (!parts.isEmpty())
+				try (InputStream is = parts.get(0).getInputStream()) {
+					store.parse(is);
+				}
+			store.finish();
+		} catch (IOException | SAXException | RuntimeException e) {
+			store.close();
+			throw e;
+		}
+		return store;
+	}
+
+	/**
+	 * Decodes the string at `index`.
+	 */
+	public String getEntryAt(int index) {
+		checkIndex(index);
+		if (dataSegments == null) {
+			int offset = (int) offsets[index];
+			return new String(data, offset + 4, readInt(data, offset), StandardCharsets.UTF_8);
+		}
+
+		long offset = mappedOffset(index);
+		ByteBuffer segment = dataSegments[(int) (offset >>> segmentShift)];
+		int start = (int) (offset & segmentMask);
+		byte[] bytes = new byte[segment.getInt(start)];
+		// The segments are shared by the threads reading the sheets, so they are read through a duplicate
+		ByteBuffer record = segment.duplicate();
+		record.position(start + 4);
+		record.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns true if the string at `index` is empty, without decoding it.
+	 */
+	public boolean isEmptyAt(int index) {
+		checkIndex(index);
+		if (dataSegments == null)
+			return readInt(data, (int) offsets[index]) == 0;
+		long offset = mappedOffset(index);
+		return dataSegments[(int) (offset >>> segmentShift)].getInt((int) (offset & segmentMask)) == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isMapped() {
+		return dataSegments != null;
+	}
+
+	/**
+	 * The bytes of the heap arrays holding the records and their offsets, 0 once they are mapped.
+	 */
+	public long getHeapSize() {
+		return data == null ? 0 : data.length + (long) offsets.length * OFFSET_BYTES;
+	}
+
+	@Override
+	public void close() {
+		// The mapped buffers are released by the garbage collector, their files are already deleted
+		dataSegments = null;
+		offsetSegments = null;
+		data = null;
+		offsets = null;
+		closeOutputs();
+		deleteFiles();
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("The shared string " + index + " doesn't exist, the table has " + size + " strings.");
+	}
+
+	private long mappedOffset(int index) {
+		long at = (long) index * OFFSET_BYTES;
+		return offsetSegments[(int) (at >>> segmentShift)].getLong((int) (at & segmentMask));
+	}
+
+	private void parse(InputStream is) throws IOException, SAXException {
+		XMLReader parser;
+		try {
+			parser = SAXHelper.newXMLReader();
+		} catch (ParserConfigurationException e) {
+			throw new SAXException(e);
+		}
+		parser.setContentHandler(new Handler());
+		try {
+			parser.parse(new InputSource(is));
+		} catch (SAXException e) {
+			// Errors from the temp files are wrapped to get through the SAX parser
+			if (e.getException() instanceof IOException)
+				throw (IOException) e.getException();
+			throw e;
+		}
+	}
+
+	private void add(String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		int recordLength = 4 + bytes.length;
+
+		if (recordLength > segmentSize)
+			throw new IOException("The shared string " + size + " is longer than a segment of " + segmentSize + " bytes.");
+		if (dataOut == null) {
+			// The heap records are moved as they are, so they must fit in a segment
+			long dataCapacity = length + recordLength > data.length ? Math.max(length + recordLength, data.length * 2L) : data.length;
+			long offsetsCapacity = size == offsets.length ? size * 2L : offsets.length;
+			if (dataCapacity + offsetsCapacity * OFFSET_BYTES > heapLimit || length + recordLength > segmentSize)
+				spill();
+		}
+
+		if (dataOut == null) {
+			if (length + recordLength > data.length)
+				data = Arrays.copyOf(data, Math.max(length + recordLength, data.length * 2));
+			if (size == offsets.length)
+				offsets = Arrays.copyOf(offsets, size * 2);
+			offsets[size] = length;
+			writeInt(data, length, bytes.length);
+			System.arraycopy(bytes, 0, data, length + 4, bytes.length);
+			length += recordLength;
+		} else {
+			long remaining = segmentSize - (position & segmentMask);
+			if (recordLength > remaining) {
+				for (long i = 0; i < remaining; i++)
+					dataOut.write(0);
+				position += remaining;
+			}
+			offsetsOut.writeLong(position);
+			dataOut.writeInt(bytes.length);
+			dataOut.write(bytes);
+			position += recordLength;
+		}
+		size++;
+	}
+
+	/**
+	 * Moves the records kept so far to the temp files, the next ones are written there directly.
+	 */
+	private void spill() throws IOException {
+		dataFile = Files.createTempFile("fdns-msft-strings", ".bin").toFile();
+		offsetsFile = Files.createTempFile("fdns-msft-strings", ".idx").toFile();
+		dataOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(dataFile.toPath()), 65536));
+		offsetsOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(offsetsFile.toPath()), 65536));
+
+		// The heap records are smaller than a segment, they keep their offsets
+		dataOut.write(data, 0, length);
+		for (int i = 0; i < size; i++)
+			offsetsOut.writeLong(offsets[i]);
+		position = length;
+		data = null;
+		offsets = null;
+	}
+
+	private void finish() throws IOException {
+		// The heap arrays are not trimmed, which would briefly need the space of both copies
+		if (dataOut == null)
+			return;
+
+		// Unlike on failures, a write error must not be ignored here
+		DataOutputStream data = dataOut;
+		DataOutputStream offsets = offsetsOut;
+		dataOut = null;
+		offsetsOut = null;
+		try {
+			data.close();
+		} finally {
+			offsets.close();
+		}
+		dataSegments = map(dataFile);
+		offsetSegments = map(offsetsFile);
+		// The mappings stay valid once the files are deleted
+		deleteFiles();
+	}
+
+	private MappedByteBuffer[] map(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			long fileSize = channel.size();
+			MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((fileSize + segmentSize - 1) >>> segmentShift)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = (long) i << segmentShift;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, fileSize - start));
+			}
+			return segments;
+		}
+	}
+
+	private void closeOutputs() {
+		try {
+			if (dataOut != null)
+				dataOut.close();
+			if (offsetsOut != null)
+				offsetsOut.close();
+		} catch (IOException e) {
+			// The files are deleted anyway
+		}
+		dataOut = null;
+		offsetsOut = null;
+	}
+
+	private void deleteFiles() {
+		FileUtils.deleteQuietly(dataFile);
+		FileUtils.deleteQuietly(offsetsFile);
+		dataFile = null;
+		offsetsFile = null;
+	}
+
+	private static int readInt(byte[] b, int i) {
+		return (b[i] & 0xff) << 24 | (b[i + 1] & 0xff) << 16 | (b[i + 2] & 0xff) << 8 | (b[i + 3] & 0xff);
+	}
+
+	private static void writeInt(byte[] b, int i, int value) {
+		b[i] = (byte) (value >>> 24);
+		b[i + 1] = (byte) (value >>> 16);
+		b[i + 2] = (byte) (value >>> 8);
+		b[i + 3] = (byte) value;
+	}
+
+	/**
+	 * Concatenates the text of the runs of each `<si>`, without the phonetic runs.
+	 */
+	private class Handler extends DefaultHandler {
+
+		private boolean inText;
+		private boolean inPhonetic;
+		private final StringBuilder text = new StringBuilder();
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes attributes) {
+			if ("si".equals(localName))
+				text.setLength(0);
+			else if ("rPh".equals(localName))
+				inPhonetic = true;
+			else if ("t".equals(localName) && !inPhonetic)
+				inText = true;
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) throws SAXException {
+			if ("t".equals(localName))
+				inText = false;
+			else if ("rPh".equals(localName))
+				inPhonetic = false;
+			else if ("si".equals(localName)) {
+				try {
+					add(text.toString());
+				} catch (IOException e) {
+					throw new SAXException(e);
+				}
+			}
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) {
+			if (inText)
+				text.append(ch, start, length);
+		}
+
+	}
+
+}
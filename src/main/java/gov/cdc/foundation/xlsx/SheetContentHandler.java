@@ -0,0 +1,107 @@
+package gov.cdc.foundation.xlsx;
+
+import java.io.InterruptedIOException;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * SAX handler for a worksheet part. Only the cells accepted by the listener are buffered and formatted,
+ * the cells it watches are buffered to tell whether they are empty.
+ */
+public class SheetContentHandler extends DefaultHandler {
+
+	private final SheetEventListener listener;
+	private final CellValueFormatter formatter;
+
+	private int rowIndex = -1;
+	private int colIndex = -1;
+	private boolean rowAccepted;
+	private boolean cellAccepted;
+	private boolean cellWatched;
+
+	private String cellType;
+	private String cellStyle;
+	private boolean formula;
+	private boolean inValue;
+	private boolean inInlineString;
+	private boolean inText;
+	private boolean inPhonetic;
+	private final StringBuilder value = new StringBuilder();
+	private final StringBuilder inlineValue = new StringBuilder();
+
+	public SheetContentHandler(SheetEventListener listener, CellValueFormatter formatter) {
+		this.listener = listener;
+		this.formatter = formatter;
+	}
+
+	@Override
+	public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+		if ("row".equals(localName)) {
+			// An interrupted reading, like a cancelled batch extraction, stops before the next row
+			if (Thread.currentThread().isInterrupted())
+				throw new SAXException(new InterruptedIOException("The reading of the sheet has been interrupted."));
+			String r = attributes.getValue("r");
+			rowIndex = r == null ? rowIndex + 1 : Integer.parseInt(r) - 1;
+			colIndex = -1;
+			rowAccepted = listener.startRow(rowIndex);
+		} else if ("c".equals(localName)) {
+			String r = attributes.getValue("r");
+			colIndex = r == null ? colIndex + 1 : A1Parser.columnOf(r);
+			cellAccepted = rowAccepted && listener.acceptCell(colIndex);
+			cellWatched = rowAccepted && !cellAccepted && listener.watchCell(colIndex);
+			if (cellAccepted || cellWatched) {
+				cellType = attributes.getValue("t");
+				cellStyle = attributes.getValue("s");
+				formula = false;
+				value.setLength(0);
+				inlineValue.setLength(0);
+			}
+		} else if (cellAccepted || cellWatched) {
+			if ("v".equals(localName))
+				inValue = true;
+			else if ("f".equals(localName))
+				formula = true;
+			else if ("is".equals(localName))
+				inInlineString = true;
+			else if ("rPh".equals(localName))
+				inPhonetic = true;
+			else if ("t".equals(localName) && inInlineString)
+				inText = true;
+		}
+	}
+
+	@Override
+	public void endElement(String uri, String localName, String qName) throws SAXException {
+		if ("v".equals(localName))
+			inValue = false;
+		else if ("t".equals(localName))
+			inText = false;
+		else if ("rPh".equals(localName))
+			inPhonetic = false;
+		else if ("is".equals(localName))
+			inInlineString = false;
+		else if ("c".equals(localName)) {
+			if (cellAccepted)
+				listener.cell(colIndex, formatter.format(cellType, cellStyle, formula, value.toString(), inlineValue.toString()));
+			else if (cellWatched && !formatter.isEmpty(cellType, formula, value.toString(), inlineValue.toString()))
+				listener.nonEmptyCell(colIndex);
+			cellAccepted = false;
+			cellWatched = false;
+		} else if ("row".equals(localName)) {
+			if (rowAccepted)
+				listener.endRow(rowIndex);
+			rowAccepted = false;
+		}
+	}
+
+	@Override
+	public void characters(char[] ch, int start, int length) {
+		if (inValue)
+			value.append(ch, start, length);
+		else if (inText && !inPhonetic)
+			inlineValue.append(ch, start, length);
+	}
+
+}
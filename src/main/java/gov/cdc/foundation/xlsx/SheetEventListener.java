@@ -0,0 +1,43 @@
+package gov.cdc.foundation.xlsx;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Receives the rows and cells of a sheet in document order. Indexes are 0-based.
+ */
+public interface SheetEventListener {
+
+	/**
+	 * Returns false when none of the cells of the row are needed.
+	 */
+	boolean startRow(int rowIndex) throws SAXException;
+
+	/**
+	 * Returns false when the cell doesn't need to be formatted.
+	 */
+	boolean acceptCell(int columnIndex);
+
+	void cell(int columnIndex, String value) throws SAXException;
+
+	/**
+	 * Returns true when the listener needs to know whether a cell it doesn't accept holds a value.
+	 */
+	default boolean watchCell(int columnIndex) {
+		return false;
+	}
+
+	/**
+	 * Called instead of `cell` for a watched cell holding a value, which isn't formatted.
+	 */
+	default void nonEmptyCell(int columnIndex) throws SAXException {
+		// Nothing to do
+	}
+
+	void endRow(int rowIndex) throws SAXException;
+
+	/**
+	 * Called once, when the sheet has been fully read or when the reading has been stopped.
+	 */
+	void endSheet() throws SAXException;
+
+}
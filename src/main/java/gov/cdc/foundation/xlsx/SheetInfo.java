@@ -0,0 +1,48 @@
+package gov.cdc.foundation.xlsx;
+
+/**
+ * A sheet as declared in the workbook part.
+ */
+public class SheetInfo {
+
+	private final String name;
+	private final String partName;
+	private final String state;
+	private String dimension;
+
+	public SheetInfo(String name, String partName, String state) {
+		this.name = name;
+		this.partName = partName;
+		this.state = state;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Name of the zip entry of the sheet, ex: `xl/worksheets/sheet1.xml`.
+	 */
+	public String getPartName() {
+		return partName;
+	}
+
+	/**
+	 * Visibility of the sheet: `visible`, `hidden` or `veryHidden`.
+	 */
+	public String getState() {
+		return state == null ? "visible" : state;
+	}
+
+	/**
+	 * Used range declared by the sheet, ex: `A1:C2`. Only set when the dimensions have been read.
+	 */
+	public String getDimension() {
+		return dimension;
+	}
+
+	void setDimension(String dimension) {
+		this.dimension = dimension;
+	}
+
+}
@@ -0,0 +1,105 @@
+package gov.cdc.foundation.xlsx;
+
+import gov.cdc.helper.common.ServiceException;
+
+/**
+ * One rectangular area of a sheet range, with the orientation used to extract it. All indexes are 0-based.
+ */
+public class SheetRange {
+
+	public static final String PORTRAIT = "portrait";
+	public static final String LANDSCAPE = "landscape";
+
+	private final int startRow;
+	private final int endRow;
+	private final int startCol;
+	private final int endCol;
+	private final boolean portrait;
+
+	private SheetRange(int startRow, int endRow, int startCol, int endCol, boolean portrait) {
+		this.startRow = startRow;
+		this.endRow = endRow;
+		this.startCol = startCol;
+		this.endCol = endCol;
+		this.portrait = portrait;
+	}
+
+	public static boolean isPortrait(String orientation) throws ServiceException {
+		if (orientation == null || orientation.isEmpty() || PORTRAIT.equalsIgnoreCase(orientation))
+			return true;
+		if (LANDSCAPE.equalsIgnoreCase(orientation))
+			return false;
+		throw new ServiceException("The orientation must be `portrait` or `landscape`.");
+	}
+
+	/**
+	 * Builds the range from an area parsed by A1Parser.
+	 * As a portrait extraction goes down until an empty row, whole columns like `A:D` start from the first row;
+	 * as a landscape extraction goes right until an empty column, whole rows like `3:10` start from the first column.
+	 */
+	public static SheetRange of(int[] area, boolean portrait) throws ServiceException {
+		int startRow = area[A1Parser.START_ROW];
+		int endRow = area[A1Parser.END_ROW];
+		int startCol = area[A1Parser.START_COL];
+		int endCol = area[A1Parser.END_COL];
+
+		if (area[A1Parser.KIND] == A1Parser.COLUMNS) {
+			if (!portrait)
+				throw new ServiceException("Whole columns like `A:D` are only supported with the mode `portrait`.");
+			endRow = startRow;
+		} else if (area[A1Parser.KIND] == A1Parser.ROWS) {
+			if (portrait)
+				throw new ServiceException("Whole rows like `3:10` are only supported with the mode `landscape`.");
+			endCol = startCol;
+		}
+
+		if (endCol < startCol)
+			throw new ServiceException("The end column needs to be after the start column.");
+		if (endRow < startRow)
+			throw new ServiceException("The end column needs to be after the start column.");
+		if (portrait && startRow != endRow)
+			throw new ServiceException("If the mode `portrait` is selected, the start and end rows must be the same.");
+		if (!portrait && startCol != endCol)
+			throw new ServiceException("If the mode `landscape` is selected, the start and end columns must be the same.");
+
+		return new SheetRange(startRow, endRow, startCol, endCol, portrait);
+	}
+
+	/**
+	 * Returns the portrait range starting `offset` rows below this one.
+	 */
+	public SheetRange page(int offset) throws ServiceException {
+		if ((long) startRow + offset >= A1Parser.MAX_ROWS)
+			throw new ServiceException("The offset is after the last row of the sheet.");
+		return new SheetRange(startRow + offset, endRow + offset, startCol, endCol, portrait);
+	}
+
+	/**
+	 * Identifies the cells an extraction of this range reads: the rows from the start row, and the columns of the range
+	 * in portrait mode or all the columns from the start column in landscape mode.
+	 */
+	public String getProjection() {
+		return startRow + ":" + startCol + ":" + (portrait ? String.valueOf(endCol) : "");
+	}
+
+	public int getStartRow() {
+		return startRow;
+	}
+
+	public int getEndRow() {
+		return endRow;
+	}
+
+	public int getStartCol() {
+		return startCol;
+	}
+
+	public int getEndCol() {
+		return endCol;
+	}
+
+	public boolean isPortrait() {
+		return portrait;
+	}
+
+}
@@ -0,0 +1,12 @@
+package gov.cdc.foundation.xlsx;
+
+import java.io.IOException;
+
+/**
+ * Receives the rows extracted from a sheet range, one at a time.
+ */
+public interface SheetRowHandler {
+
+	void row(String[] values) throws IOException;
+
+}
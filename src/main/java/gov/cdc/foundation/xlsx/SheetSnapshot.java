@@ -0,0 +1,180 @@
+package gov.cdc.foundation.xlsx;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.xml.sax.SAXException;
+
+import gov.cdc.foundation.helper.StopReadingException;
+
+/**
+ * Compact copy of the formatted cells of a sheet read by a listener, stored in flat arrays so it can be cached and replayed
+ * to the listeners reading the same cells, or fewer, without parsing the workbook again. Empty cells are not stored.
+ * A snapshot can stop before the end of the sheet, it then covers the rows up to `coveredRow`.
+ */
+public class SheetSnapshot {
+
+	private static final int ROW_WEIGHT = 8;
+	private static final int CELL_WEIGHT = 56;
+
+	private int rows = 0;
+	private int[] rowIndexes = new int[64];
+	private int[] rowEnds = new int[64];
+	private int cells = 0;
+	private int[] cols = new int[256];
+	private String[] values = new String[256];
+	private long weight = 0;
+	private int coveredRow = Integer.MAX_VALUE;
+
+	SheetSnapshot() {
+	}
+
+	/**
+	 * Starts a copy of a partial snapshot, to which the rows after the ones it covers are appended.
+	 */
+	SheetSnapshot(SheetSnapshot covered) {
+		rows = covered.rows;
+		rowIndexes = Arrays.copyOf(covered.rowIndexes, Math.max(64, rows * 2));
+		rowEnds = Arrays.copyOf(covered.rowEnds, rowIndexes.length);
+		cells = covered.cells;
+		cols = Arrays.copyOf(covered.cols, Math.max(256, cells * 2));
+		values = Arrays.copyOf(covered.values, cols.length);
+		weight = covered.weight;
+	}
+
+	void startRow(int rowIndex) {
+		if (rows == rowIndexes.length) {
+			rowIndexes = Arrays.copyOf(rowIndexes, rows * 2);
+			rowEnds = Arrays.copyOf(rowEnds, rows * 2);
+		}
+		rowIndexes[rows] = rowIndex;
+	}
+
+	void cell(int columnIndex, String value) {
+		if (value.isEmpty())
+			return;
+		if (cells == cols.length) {
+			cols = Arrays.copyOf(cols, cells * 2);
+			values = Arrays.copyOf(values, cells * 2);
+		}
+		cols[cells] = columnIndex;
+		values[cells] = value;
+		cells++;
+		weight += CELL_WEIGHT + 2L * value.length();
+	}
+
+	void endRow() {
+		rowEnds[rows++] = cells;
+		weight += ROW_WEIGHT;
+	}
+
+	/**
+	 * Ends the recording, the rows after `coveredRow` being unknown, or Integer.MAX_VALUE for the whole sheet.
+	 */
+	void finish(int coveredRow) {
+		this.coveredRow = coveredRow;
+		rowIndexes = Arrays.copyOf(rowIndexes, rows);
+		rowEnds = Arrays.copyOf(rowEnds, rows);
+		cols = Arrays.copyOf(cols, cells);
+		values = Arrays.copyOf(values, cells);
+	}
+
+	/**
+	 * Estimated heap size of the snapshot, in bytes.
+	 */
+	public long getWeight() {
+		return weight;
+	}
+
+	public boolean isComplete() {
+		return coveredRow == Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Returns true if this snapshot covers at least the rows of `other`.
+	 */
+	boolean covers(SheetSnapshot other) {
+		return coveredRow >= other.coveredRow;
+	}
+
+	/**
+	 * Replays the rows to the listener and returns true once it is done with the sheet.
+	 * Returns false if the snapshot ends before the listener has stopped: the sheet must then be read
+	 * through `resume(listener)`, and `endSheet` hasn't been called yet.
+	 */
+	public boolean replay(SheetEventListener listener) throws IOException, SAXException {
+		try {
+			try {
+				int start = 0;
+				for (int i = 0; i < rows; i++) {
+					int end = rowEnds[i];
+					if (listener.startRow(rowIndexes[i])) {
+						for (int j = start; j < end; j++) {
+							if (listener.acceptCell(cols[j]))
+								listener.cell(cols[j], values[j]);
+							else if (listener.watchCell(cols[j]))
+								listener.nonEmptyCell(cols[j]);
+						}
+						listener.endRow(rowIndexes[i]);
+					}
+					start = end;
+				}
+				if (!isComplete())
+					return false;
+			} catch (StopReadingException e) {
+				// The listener has all the rows it needs
+			}
+			listener.endSheet();
+			return true;
+		} catch (SAXException e) {
+			if (e.getException() instanceof IOException)
+				throw (IOException) e.getException();
+			throw e;
+		}
+	}
+
+	/**
+	 * Wraps a listener to which this snapshot has been replayed, so that it skips the rows already covered.
+	 */
+	SheetEventListener resume(SheetEventListener listener) {
+		return new SheetEventListener() {
+
+			@Override
+			public boolean startRow(int rowIndex) throws SAXException {
+				return rowIndex > coveredRow && listener.startRow(rowIndex);
+			}
+
+			@Override
+			public boolean acceptCell(int columnIndex) {
+				return listener.acceptCell(columnIndex);
+			}
+
+			@Override
+			public boolean watchCell(int columnIndex) {
+				return listener.watchCell(columnIndex);
+			}
+
+			@Override
+			public void cell(int columnIndex, String value) throws SAXException {
+				listener.cell(columnIndex, value);
+			}
+
+			@Override
+			public void nonEmptyCell(int columnIndex) throws SAXException {
+				listener.nonEmptyCell(columnIndex);
+			}
+
+			@Override
+			public void endRow(int rowIndex) throws SAXException {
+				listener.endRow(rowIndex);
+			}
+
+			@Override
+			public void endSheet() throws SAXException {
+				listener.endSheet();
+			}
+
+		};
+	}
+
+}
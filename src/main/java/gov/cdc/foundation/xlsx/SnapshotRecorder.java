@@ -0,0 +1,106 @@
+package gov.cdc.foundation.xlsx;
+
+import org.xml.sax.SAXException;
+
+import gov.cdc.foundation.helper.StopReadingException;
+
+/**
+ * Forwards the events of a sheet to a listener while recording the cells it accepts in a snapshot,
+ * so that no other cell is formatted because of the recording.
+ * The recording stops with the listener, the snapshot then only covers the rows read so far.
+ * It is dropped if it gets bigger than `maxWeight`, or as soon as the listener watches a cell it doesn't accept.
+ */
+class SnapshotRecorder implements SheetEventListener {
+
+	interface Callback {
+		void recorded(SheetSnapshot snapshot);
+	}
+
+	private final SheetEventListener delegate;
+	private final long maxWeight;
+	private final Callback callback;
+
+	private SheetSnapshot snapshot;
+
+	/**
+	 * Appends the rows read to `snapshot`, which can already hold the rows skipped by the listener.
+	 */
+	SnapshotRecorder(SheetEventListener delegate, SheetSnapshot snapshot, long maxWeight, Callback callback) {
+		this.delegate = delegate;
+		this.snapshot = snapshot;
+		this.maxWeight = maxWeight;
+		this.callback = callback;
+	}
+
+	@Override
+	public boolean startRow(int rowIndex) throws SAXException {
+		boolean accepted;
+		try {
+			accepted = delegate.startRow(rowIndex);
+		} catch (StopReadingException e) {
+			// The row isn't recorded, the rows before it are complete
+			finish(rowIndex - 1);
+			throw e;
+		}
+		if (accepted && snapshot != null)
+			snapshot.startRow(rowIndex);
+		return accepted;
+	}
+
+	@Override
+	public boolean acceptCell(int columnIndex) {
+		return delegate.acceptCell(columnIndex);
+	}
+
+	@Override
+	public boolean watchCell(int columnIndex) {
+		if (!delegate.watchCell(columnIndex))
+			return false;
+		// The snapshot only holds the accepted cells, so it wouldn't tell whether this one is empty
+		snapshot = null;
+		return true;
+	}
+
+	@Override
+	public void cell(int columnIndex, String value) throws SAXException {
+		if (snapshot != null)
+			snapshot.cell(columnIndex, value);
+		delegate.cell(columnIndex, value);
+	}
+
+	@Override
+	public void nonEmptyCell(int columnIndex) throws SAXException {
+		delegate.nonEmptyCell(columnIndex);
+	}
+
+	@Override
+	public void endRow(int rowIndex) throws SAXException {
+		if (snapshot != null) {
+			snapshot.endRow();
+			if (snapshot.getWeight() > maxWeight)
+				snapshot = null;
+		}
+
+		try {
+			delegate.endRow(rowIndex);
+		} catch (StopReadingException e) {
+			finish(rowIndex);
+			throw e;
+		}
+	}
+
+	@Override
+	public void endSheet() throws SAXException {
+		finish(Integer.MAX_VALUE);
+		delegate.endSheet();
+	}
+
+	private void finish(int coveredRow) {
+		if (snapshot != null) {
+			snapshot.finish(coveredRow);
+			callback.recorded(snapshot);
+			snapshot = null;
+		}
+	}
+
+}
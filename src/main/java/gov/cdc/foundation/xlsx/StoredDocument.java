@@ -0,0 +1,104 @@
+package gov.cdc.foundation.xlsx;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+
+import gov.cdc.helper.common.ServiceException;
+
+/**
+ * A workbook uploaded once and kept on disk so it can be queried several times.
+ * The row offset indexes of its sheets are built on the first page read and kept next to it.
+ * For the paged ranges, it also keeps the number of rows known to be present and non-empty.
+ */
+public class StoredDocument {
+
+	private final String id;
+	private final String filename;
+	private final File file;
+	private final String hash;
+	private final Map<String, RowOffsetIndex> indexes = new HashMap<>();
+	private final Map<String, Integer> checkedRows = new HashMap<>();
+	private final Set<String> endedRanges = new HashSet<>();
+	private boolean deleted;
+
+	public StoredDocument(String id, String filename, File file, String hash) {
+		this.id = id;
+		this.filename = filename;
+		this.file = file;
+		this.hash = hash;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getFilename() {
+		return filename;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public String getHash() {
+		return hash;
+	}
+
+	/**
+	 * Returns the row offset index of a sheet, built from the reader the first time.
+	 */
+	public synchronized RowOffsetIndex getIndex(String sheetName, XLSXStreamingReader reader) throws IOException, OpenXML4JException, ServiceException {
+		if (deleted)
+			throw new ServiceException("The following document doesn't exist: " + id);
+		RowOffsetIndex index = indexes.get(sheetName);
+		if (index == null) {
+			try (InputStream sheet = reader.openSheet(sheetName)) {
+				index = RowOffsetIndex.build(sheet, new File(file.getPath() + "." + indexes.size() + ".xml"));
+			}
+			indexes.put(sheetName, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the number of rows from the start of a portrait range that are present and non-empty, as far as they have been read.
+	 */
+	public synchronized int getCheckedRows(String sheetName, SheetRange range) {
+		return checkedRows.getOrDefault(keyOf(sheetName, range), 0);
+	}
+
+	/**
+	 * Returns true if the row after the checked rows of the range is missing or empty, which ends the range.
+	 */
+	public synchronized boolean isEnded(String sheetName, SheetRange range) {
+		return endedRanges.contains(keyOf(sheetName, range));
+	}
+
+	public synchronized void setCheckedRows(String sheetName, SheetRange range, int rows, boolean ended) {
+		String key = keyOf(sheetName, range);
+		checkedRows.merge(key, rows, Math::max);
+		if (ended)
+			endedRanges.add(key);
+	}
+
+	private static String keyOf(String sheetName, SheetRange range) {
+		return sheetName + "!" + range.getStartRow() + ":" + range.getStartCol() + ":" + range.getEndCol();
+	}
+
+	synchronized void delete() {
+		deleted = true;
+		FileUtils.deleteQuietly(file);
+		for (RowOffsetIndex index : indexes.values())
+			index.delete();
+		indexes.clear();
+	}
+
+}
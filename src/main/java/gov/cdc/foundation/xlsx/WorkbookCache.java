@@ -0,0 +1,138 @@
+package gov.cdc.foundation.xlsx;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteStreams;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+
+/**
+ * Keeps the sheet names and the sheet snapshots of the recently uploaded workbooks, keyed by the SHA-256 of the upload,
+ * so that follow-up requests on the same file don't parse it again.
+ */
+@Component
+public class WorkbookCache implements MeterBinder {
+
+	private static final Logger logger = Logger.getLogger(WorkbookCache.class);
+
+	// A single sheet can't take more than this fraction of the cache
+	private static final int MAX_ENTRY_FRACTION = 8;
+	private static final int MAX_WORKBOOKS = 1000;
+
+	private final boolean enabled;
+	private final long maxEntryWeight;
+	private final long stringsHeapLimit;
+	private final Cache<String, WorkbookInfo> workbooks;
+	private final Cache<String, SheetSnapshot> sheets;
+
+	public WorkbookCache(@Value("${xlsx.cache.enabled}") boolean enabled, @Value("${xlsx.cache.max-weight}") long maxWeight, @Value("${xlsx.cache.ttl}") long ttl, @Value("${xlsx.shared-strings.heap-limit}") long stringsHeapLimit) {
+		logger.debug("Creating workbook cache...");
+		this.enabled = enabled;
+		this.maxEntryWeight = maxWeight / MAX_ENTRY_FRACTION;
+		this.stringsHeapLimit = stringsHeapLimit;
+		this.workbooks = CacheBuilder.newBuilder()
+				.maximumSize(MAX_WORKBOOKS)
+				.expireAfterAccess(ttl, TimeUnit.SECONDS)
+				.recordStats()
+				.build();
+		this.sheets = CacheBuilder.newBuilder()
+				.maximumWeight(maxWeight)
+				.weigher((String key, SheetSnapshot snapshot) -> (int) Math.min(Integer.MAX_VALUE, snapshot.getWeight()))
+				.expireAfterAccess(ttl, TimeUnit.SECONDS)
+				.recordStats()
+				.build();
+	}
+
+	public WorkbookHandle open(InputStreamSource source) throws IOException {
+		return new WorkbookHandle(this, enabled ? hash(source) : null, source);
+	}
+
+	/**
+	 * Opens a workbook for which the SHA-256 has already been computed, or null to bypass the cache.
+	 */
+	public WorkbookHandle open(InputStreamSource source, String hash) {
+		return new WorkbookHandle(this, enabled ? hash : null, source);
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new HashMap<>();
+		stats.put("enabled", enabled);
+		stats.put("workbooks", toMap(workbooks.stats(), workbooks.size()));
+		stats.put("sheets", toMap(sheets.stats(), sheets.size()));
+		return stats;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		GuavaCacheMetrics.monitor(registry, workbooks, "xlsx.workbooks");
+		GuavaCacheMetrics.monitor(registry, sheets, "xlsx.sheets");
+	}
+
+	/**
+	 * The size in bytes of the shared strings of a workbook above which they are kept in mapped temp files.
+	 */
+	long getStringsHeapLimit() {
+		return stringsHeapLimit;
+	}
+
+	WorkbookInfo getWorkbook(String key, boolean dimensions) {
+		return key == null ? null : workbooks.getIfPresent(dimensions ? key + ":dimensions" : key);
+	}
+
+	void putWorkbook(String key, boolean dimensions, WorkbookInfo workbook) {
+		if (key != null)
+			workbooks.put(dimensions ? key + ":dimensions" : key, workbook);
+	}
+
+	/**
+	 * Returns the snapshot of the cells of a sheet read for a projection, see SheetRange.getProjection.
+	 */
+	SheetSnapshot getSheet(String key, String sheetName, String projection) {
+		return key == null ? null : sheets.getIfPresent(key + ":" + sheetName + ":" + projection);
+	}
+
+	/**
+	 * Records the cells read by the listener, after the ones of `covered` if the listener resumes a partial snapshot.
+	 */
+	SheetEventListener record(String key, String sheetName, String projection, SheetSnapshot covered, SheetEventListener listener) {
+		if (key == null)
+			return listener;
+		// A partial snapshot doesn't replace one covering more rows
+		return new SnapshotRecorder(listener, covered == null ? new SheetSnapshot() : new SheetSnapshot(covered), maxEntryWeight,
+				snapshot -> sheets.asMap().merge(key + ":" + sheetName + ":" + projection, snapshot, (cached, recorded) -> cached.covers(recorded) ? cached : recorded));
+	}
+
+	public static String hash(InputStreamSource source) throws IOException {
+		try (HashingInputStream is = new HashingInputStream(Hashing.sha256(), source.getInputStream())) {
+			ByteStreams.exhaust(is);
+			return is.hash().toString();
+		}
+	}
+
+	private static Map<String, Object> toMap(CacheStats stats, long size) {
+		Map<String, Object> map = new HashMap<>();
+		map.put("size", size);
+		map.put("hits", stats.hitCount());
+		map.put("misses", stats.missCount());
+		map.put("evictions", stats.evictionCount());
+		map.put("hitRate", stats.hitRate());
+		return map;
+	}
+
+}
@@ -0,0 +1,209 @@
+package gov.cdc.foundation.xlsx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.xml.sax.SAXException;
+
+import gov.cdc.helper.common.ServiceException;
+
+/**
+ * Access to an uploaded workbook through the workbook cache. The file is only opened when the cache can't answer.
+ * Several sheets can be read at the same time.
+ */
+public class WorkbookHandle implements Closeable {
+
+	// The projection of the listeners reading every cell of the sheet, whose snapshots can be replayed to any listener
+	private static final String ALL_CELLS = "0:0:";
+
+	private final WorkbookCache cache;
+	private final String key;
+	private final InputStreamSource source;
+	private boolean isoDates;
+	private XLSXStreamingReader reader;
+	private StoredDocument document;
+
+	WorkbookHandle(WorkbookCache cache, String key, InputStreamSource source) {
+		this.cache = cache;
+		this.key = key;
+		this.source = source;
+	}
+
+	/**
+	 * Returns the sheets declared in the workbook part, without reading the sheets themselves.
+	 */
+	public List<SheetInfo> getSheets(boolean dimensions) throws IOException, SAXException, ServiceException {
+		return getWorkbook(dimensions).getSheets();
+	}
+
+	public List<String> getSheetNames() throws IOException, SAXException, ServiceException {
+		List<String> names = new ArrayList<>();
+		for (SheetInfo sheet : getSheets(false))
+			names.add(sheet.getName());
+		return names;
+	}
+
+	/**
+	 * Returns the name of the sheet matching `sheetName`, or the first sheet if no name is provided.
+	 */
+	public String findSheet(String sheetName) throws IOException, SAXException, ServiceException {
+		for (String name : getSheetNames()) {
+			if (sheetName == null || sheetName.isEmpty() || name.equalsIgnoreCase(sheetName))
+				return name;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the sheet named in the range if any, otherwise the sheet matching `sheetName`.
+	 */
+	public String findSheet(String sheetName, RangeReference range) throws IOException, SAXException, ServiceException {
+		return findSheet(range.getSheetName() != null ? range.getSheetName() : sheetName);
+	}
+
+	/**
+	 * Parses a sheet range expression, which can also be the name of a defined range.
+	 */
+	public RangeReference resolveRange(String range, String orientation) throws IOException, SAXException, ServiceException {
+		if (RangeReference.isName(range)) {
+			String formula = getWorkbook(false).getDefinedNames().get(range);
+			if (formula == null)
+				throw new ServiceException("The following named range doesn't exist: " + range);
+			return RangeReference.parse(formula, orientation);
+		}
+		return RangeReference.parse(range, orientation);
+	}
+
+	/**
+	 * Extracts the areas of the range one after the other.
+	 */
+	public void extract(String sheetName, RangeReference range, SheetRowHandler handler) throws IOException, SAXException, OpenXML4JException, ServiceException {
+		for (SheetRange area : range.getAreas())
+			read(sheetName, area.getProjection(), new RangeExtractor(area, handler));
+	}
+
+	/**
+	 * Extracts a range keeping only the selected columns and rows, which requires a single area in portrait mode.
+	 */
+	public void extract(String sheetName, RangeReference range, RowSelection selection, SheetRowHandler handler) throws IOException, SAXException, OpenXML4JException, ServiceException {
+		if (selection == null || selection.isEmpty()) {
+			extract(sheetName, range, handler);
+			return;
+		}
+		if (range.getAreas().size() != 1 || !range.getAreas().get(0).isPortrait())
+			throw new ServiceException("The columns, the filters and the pages are only supported with a single area in the mode `portrait`.");
+
+		if (selection.isPaged()) {
+			extractPage(sheetName, range.getAreas().get(0), selection.getOffset(), selection.getLimit(), handler);
+			return;
+		}
+
+		// The extractor watches the cells it doesn't select, which drops the snapshot being recorded
+		SheetRange area = range.getAreas().get(0);
+		SelectionExtractor extractor = new SelectionExtractor(area, selection, handler);
+		read(sheetName, area.getProjection(), extractor);
+		extractor.check();
+	}
+
+	/**
+	 * Writes the dates as ISO-8601 instead of with the number format of the cells, must be set before reading.
+	 */
+	public void setIsoDates(boolean isoDates) {
+		this.isoDates = isoDates;
+	}
+
+	/**
+	 * The rows before the page are checked like the other rows, so that the pages stop at the first missing or empty row
+	 * like the whole extraction. Uploads are read from the start, possibly from a snapshot.
+	 * Stored documents remember how many rows of the range have been checked, and are read from there through the
+	 * row offset index of the sheet, so only the first page past these rows reads the rows before it.
+	 */
+	private void extractPage(String sheetName, SheetRange range, int offset, int limit, SheetRowHandler handler) throws IOException, SAXException, OpenXML4JException, ServiceException {
+		if (document == null) {
+			read(sheetName, range.getProjection(), new RangeExtractor(range, handler, offset, limit));
+			return;
+		}
+
+		int checked = document.getCheckedRows(sheetName, range);
+		if (checked <= offset && document.isEnded(sheetName, range))
+			return;
+
+		int start = Math.min(checked, offset);
+		SheetRange rest = range.page(start);
+		RangeExtractor extractor = new RangeExtractor(rest, handler, offset - start, limit);
+		// The copy starts in the middle of the sheet, so it can't be recorded as a snapshot
+		RowOffsetIndex index = document.getIndex(sheetName, getReader());
+		try (InputStream sheet = index.open(rest.getStartRow())) {
+			getReader().parse(sheet, extractor);
+		}
+		document.setCheckedRows(sheetName, range, start + extractor.getRowsRead(), extractor.isEnded());
+	}
+
+	void setDocument(StoredDocument document) {
+		this.document = document;
+	}
+
+	/**
+	 * Reads every cell of a sheet, see `read(sheetName, projection, listener)`.
+	 */
+	public void read(String sheetName, SheetEventListener listener) throws IOException, SAXException, OpenXML4JException, ServiceException {
+		read(sheetName, ALL_CELLS, listener);
+	}
+
+	/**
+	 * Replays the cached snapshot of the cells of the projection, or of all the cells, if any, and reads the rows
+	 * it doesn't cover from the file. Only the cells accepted by the listener are recorded, under its projection,
+	 * and the recording stops with the listener, so that a small range doesn't wait for the rest of the sheet.
+	 */
+	void read(String sheetName, String projection, SheetEventListener listener) throws IOException, SAXException, OpenXML4JException, ServiceException {
+		// The snapshots hold formatted values, so they depend on the date format
+		String sheetKey = key != null && isoDates ? key + ":iso" : key;
+		SheetSnapshot snapshot = cache.getSheet(sheetKey, sheetName, projection);
+		boolean sameProjection = snapshot != null;
+		if (snapshot == null)
+			snapshot = cache.getSheet(sheetKey, sheetName, ALL_CELLS);
+
+		if (snapshot == null)
+			getReader().read(sheetName, cache.record(sheetKey, sheetName, projection, null, listener));
+		else if (!snapshot.replay(listener))
+			// The cells of the projection can't be appended to a snapshot of all the cells
+			getReader().read(sheetName, sameProjection ? cache.record(sheetKey, sheetName, projection, snapshot, snapshot.resume(listener)) : snapshot.resume(listener));
+	}
+
+	/**
+	 * The number of cells formatted by the reads of this handle so far, the replayed snapshots not being formatted again.
+	 */
+	public synchronized long getFormattedCells() {
+		return reader == null ? 0 : reader.getFormattedCells();
+	}
+
+	private WorkbookInfo getWorkbook(boolean dimensions) throws IOException, SAXException, ServiceException {
+		WorkbookInfo workbook = cache.getWorkbook(key, dimensions);
+		if (workbook == null) {
+			workbook = WorkbookIndex.read(source, dimensions);
+			cache.putWorkbook(key, dimensions, workbook);
+		}
+		return workbook;
+	}
+
+	private synchronized XLSXStreamingReader getReader() throws IOException, OpenXML4JException {
+		if (reader == null)
+			reader = source instanceof FileSystemResource
+					? new XLSXStreamingReader(((FileSystemResource) source).getFile(), isoDates, cache.getStringsHeapLimit())
+					: new XLSXStreamingReader(source.getInputStream(), isoDates, cache.getStringsHeapLimit());
+		return reader;
+	}
+
+	@Override
+	public void close() {
+		if (reader != null)
+			reader.close();
+	}
+
+}
@@ -0,0 +1,216 @@
+package gov.cdc.foundation.xlsx;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.poi.util.SAXHelper;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import gov.cdc.foundation.helper.StopReadingException;
+import gov.cdc.helper.common.ServiceException;
+
+/**
+ * Lists the sheets and the defined names of a XLSX file by reading the package relationships and the workbook part only.
+ * When the file is on disk, the zip is read with random access, so the sheet parts are never inflated;
+ * with `dimensions`, only the beginning of each sheet part is read to get its `<dimension>` element.
+ */
+public class WorkbookIndex {
+
+	private static final String PACKAGE_RELATIONSHIPS = "_rels/.rels";
+	private static final String OFFICE_DOCUMENT = "/officeDocument";
+
+	// The `<dimension>` element is at the top of the sheet part
+	private static final int SHEET_HEAD_SIZE = 8192;
+
+	private interface Parts {
+		InputStream open(String name) throws IOException;
+	}
+
+	private WorkbookIndex() {
+		throw new IllegalAccessError("Helper class");
+	}
+
+	public static WorkbookInfo read(InputStreamSource source, boolean dimensions) throws IOException, SAXException, ServiceException {
+		if (source instanceof FileSystemResource)
+			return read(((FileSystemResource) source).getFile(), dimensions);
+		try (InputStream is = source.getInputStream()) {
+			return read(is, dimensions);
+		}
+	}
+
+	public static WorkbookInfo read(File file, boolean dimensions) throws IOException, SAXException, ServiceException {
+		try (ZipFile zip = new ZipFile(file)) {
+			return read(name -> {
+				ZipEntry entry = zip.getEntry(name);
+				return entry == null ? null : zip.getInputStream(entry);
+			}, dimensions);
+		}
+	}
+
+	public static WorkbookInfo read(InputStream is, boolean dimensions) throws IOException, SAXException, ServiceException {
+		// Without random access, keep the small parts and the beginning of the others while going through the zip
+		Map<String, byte[]> parts = new HashMap<>();
+		ZipInputStream zis = new ZipInputStream(is);
+		ZipEntry entry;
+		while ((entry = zis.getNextEntry()) != null) {
+			String name = entry.getName();
+			if (name.endsWith(".rels") || name.endsWith("workbook.xml"))
+				parts.put(name, IOUtils.toByteArray(zis));
+			else if (dimensions && name.endsWith(".xml")) {
+				byte[] head = new byte[SHEET_HEAD_SIZE];
+				parts.put(name, Arrays.copyOf(head, IOUtils.read(zis, head)));
+			}
+		}
+		return read(name -> parts.containsKey(name) ? new ByteArrayInputStream(parts.get(name)) : null, dimensions);
+	}
+
+	private static WorkbookInfo read(Parts parts, boolean dimensions) throws IOException, SAXException, ServiceException {
+		// Find the workbook part
+		String workbookPart = findWorkbookPart(parts);
+		if (workbookPart == null)
+			throw new ServiceException("The file is not a valid XLSX file.");
+
+		// Get the sheets and the defined names
+		Map<String, String[]> rels = readRelationships(parts, relationshipsOf(workbookPart));
+		List<SheetInfo> sheets = new ArrayList<>();
+		Map<String, String> definedNames = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		parse(parts, workbookPart, new DefaultHandler() {
+			private String name;
+			private boolean global;
+			private StringBuilder formula = new StringBuilder();
+
+			@Override
+			public void startElement(String uri, String localName, String qName, Attributes attributes) {
+				if ("sheet".equals(localName)) {
+					String[] rel = rels.get(relationshipId(attributes));
+					String partName = rel == null ? null : resolve(workbookPart, rel[1]);
+					sheets.add(new SheetInfo(attributes.getValue("name"), partName, attributes.getValue("state")));
+				} else if ("definedName".equals(localName)) {
+					name = attributes.getValue("name");
+					global = attributes.getValue("localSheetId") == null;
+					formula.setLength(0);
+				}
+			}
+
+			@Override
+			public void characters(char[] ch, int start, int length) {
+				if (name != null)
+					formula.append(ch, start, length);
+			}
+
+			@Override
+			public void endElement(String uri, String localName, String qName) {
+				// Workbook names take precedence over the sheet names
+				if ("definedName".equals(localName) && name != null) {
+					if (global)
+						definedNames.put(name, formula.toString());
+					else
+						definedNames.putIfAbsent(name, formula.toString());
+					name = null;
+				}
+			}
+		});
+
+		if (dimensions) {
+			for (SheetInfo sheet : sheets) {
+				if (sheet.getPartName() != null)
+					sheet.setDimension(readDimension(parts, sheet.getPartName()));
+			}
+		}
+		return new WorkbookInfo(sheets, definedNames);
+	}
+
+	private static String findWorkbookPart(Parts parts) throws IOException, SAXException {
+		for (String[] rel : readRelationships(parts, PACKAGE_RELATIONSHIPS).values()) {
+			if (rel[0].endsWith(OFFICE_DOCUMENT))
+				return resolve("", rel[1]);
+		}
+		return null;
+	}
+
+	private static String readDimension(Parts parts, String partName) throws IOException, SAXException {
+		final String[] dimension = new String[1];
+		try {
+			parse(parts, partName, new DefaultHandler() {
+				@Override
+				public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+					if ("dimension".equals(localName))
+						dimension[0] = attributes.getValue("ref");
+					if ("dimension".equals(localName) || "sheetData".equals(localName))
+						throw new StopReadingException();
+				}
+			});
+		} catch (StopReadingException e) {
+			// Nothing else is needed
+		} catch (SAXException e) {
+			// The beginning of the part may have been truncated before the element
+		}
+		return dimension[0];
+	}
+
+	/**
+	 * Returns the relationships of a part: id => [type, target].
+	 */
+	private static Map<String, String[]> readRelationships(Parts parts, String name) throws IOException, SAXException {
+		Map<String, String[]> rels = new HashMap<>();
+		parse(parts, name, new DefaultHandler() {
+			@Override
+			public void startElement(String uri, String localName, String qName, Attributes attributes) {
+				if ("Relationship".equals(localName) && !"External".equals(attributes.getValue("TargetMode")))
+					rels.put(attributes.getValue("Id"), new String[] { attributes.getValue("Type"), attributes.getValue("Target") });
+			}
+		});
+		return rels;
+	}
+
+	private static void parse(Parts parts, String name, DefaultHandler handler) throws IOException, SAXException {
+		try (InputStream is = parts.open(name)) {
+			if (is == null)
+				return;
+			XMLReader parser = SAXHelper.newXMLReader();
+			parser.setContentHandler(handler);
+			parser.parse(new InputSource(is));
+		} catch (ParserConfigurationException e) {
+			throw new SAXException(e);
+		}
+	}
+
+	private static String relationshipId(Attributes attributes) {
+		for (int i = 0; i < attributes.getLength(); i++) {
+			if ("id".equals(attributes.getLocalName(i)) && !attributes.getURI(i).isEmpty())
+				return attributes.getValue(i);
+		}
+		return null;
+	}
+
+	private static String relationshipsOf(String partName) {
+		int i = partName.lastIndexOf('/');
+		return partName.substring(0, i + 1) + "_rels/" + partName.substring(i + 1) + ".rels";
+	}
+
+	private static String resolve(String sourcePart, String target) {
+		return URI.create("/" + sourcePart).resolve(target).getPath().substring(1);
+	}
+
+}
@@ -0,0 +1,31 @@
+package gov.cdc.foundation.xlsx;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The sheets and the defined names of a workbook, as declared in its workbook part.
+ */
+public class WorkbookInfo {
+
+	private final List<SheetInfo> sheets;
+	private final Map<String, String> definedNames;
+
+	public WorkbookInfo(List<SheetInfo> sheets, Map<String, String> definedNames) {
+		this.sheets = Collections.unmodifiableList(sheets);
+		this.definedNames = Collections.unmodifiableMap(definedNames);
+	}
+
+	public List<SheetInfo> getSheets() {
+		return sheets;
+	}
+
+	/**
+	 * Formulas of the defined names, like `Sheet1!$A$1:$D$1`, with case-insensitive keys.
+	 */
+	public Map<String, String> getDefinedNames() {
+		return definedNames;
+	}
+
+}
@@ -0,0 +1,129 @@
+package gov.cdc.foundation.xlsx;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.util.SAXHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import gov.cdc.foundation.helper.StopReadingException;
+import gov.cdc.helper.common.ServiceException;
+
+/**
+ * Event-model (SAX) reader for XLSX files: sheets are read one row at a time and never loaded as a whole.
+ */
+public class XLSXStreamingReader implements Closeable {
+
+	private final OPCPackage pkg;
+	private final XSSFReader reader;
+	private final boolean isoDates;
+	private final long stringsHeapLimit;
+	private SharedStringsStore strings;
+	private CellValueFormatter formatter;
+
+	/**
+	 * The shared strings bigger than `stringsHeapLimit` bytes are kept in mapped temp files instead of the heap.
+	 */
+	public XLSXStreamingReader(InputStream is, boolean isoDates, long stringsHeapLimit) throws IOException, OpenXML4JException {
+		this(OPCPackage.open(is), isoDates, stringsHeapLimit);
+	}
+
+	/**
+	 * Opens the package read-only from a file: the parts are only inflated when they are read.
+	 */
+	public XLSXStreamingReader(File file, boolean isoDates, long stringsHeapLimit) throws IOException, OpenXML4JException {
+		this(OPCPackage.open(file, PackageAccess.READ), isoDates, stringsHeapLimit);
+	}
+
+	private XLSXStreamingReader(OPCPackage pkg, boolean isoDates, long stringsHeapLimit) throws IOException, OpenXML4JException {
+		this.isoDates = isoDates;
+		this.stringsHeapLimit = stringsHeapLimit;
+		this.pkg = pkg;
+		try {
+			reader = new XSSFReader(pkg);
+		} catch (IOException | OpenXML4JException e) {
+			pkg.revert();
+			throw e;
+		}
+	}
+
+	public void read(String sheetName, SheetEventListener listener) throws IOException, SAXException, OpenXML4JException, ServiceException {
+		try (InputStream sheet = openSheet(sheetName)) {
+			parse(sheet, listener);
+		}
+	}
+
+	/**
+	 * Returns the uncompressed part of a sheet, to be closed by the caller.
+	 */
+	public InputStream openSheet(String sheetName) throws IOException, OpenXML4JException, ServiceException {
+		XSSFReader.SheetIterator it = (XSSFReader.SheetIterator) reader.getSheetsData();
+		while (it.hasNext()) {
+			InputStream sheet = it.next();
+			if (it.getSheetName().equals(sheetName))
+				return sheet;
+			sheet.close();
+		}
+		throw new ServiceException("The following sheet doesn't exist: " + sheetName);
+	}
+
+	/**
+	 * Parses a sheet part, or a copy of it, with the shared strings and the styles of this workbook.
+	 */
+	public void parse(InputStream sheet, SheetEventListener listener) throws IOException, SAXException, OpenXML4JException {
+		XMLReader parser;
+		try {
+			parser = SAXHelper.newXMLReader();
+		} catch (ParserConfigurationException e) {
+			throw new SAXException(e);
+		}
+		parser.setContentHandler(new SheetContentHandler(listener, getFormatter()));
+
+		try {
+			try {
+				parser.parse(new InputSource(sheet));
+			} catch (StopReadingException e) {
+				// The listener has all the rows it needs
+			}
+			listener.endSheet();
+		} catch (SAXException e) {
+			// Errors from the row handler are wrapped to get through the SAX parser
+			if (e.getException() instanceof IOException)
+				throw (IOException) e.getException();
+			throw e;
+		}
+	}
+
+	/**
+	 * The number of cells formatted by the reads of this workbook so far.
+	 */
+	public synchronized long getFormattedCells() {
+		return formatter == null ? 0 : formatter.getFormattedCells();
+	}
+
+	private synchronized CellValueFormatter getFormatter() throws IOException, SAXException, OpenXML4JException {
+		if (formatter == null) {
+			strings = SharedStringsStore.read(pkg, stringsHeapLimit);
+			formatter = new CellValueFormatter(strings, reader.getStylesTable(), isoDates);
+		}
+		return formatter;
+	}
+
+	@Override
+	public void close() {
+		if (strings != null)
+			strings.close();
+		pkg.revert();
+	}
+
+}
@@ -4,18 +4,41 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xwpf.model.XWPFHeaderFooterPolicy;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
 import org.hamcrest.CoreMatchers;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTP;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -28,6 +51,16 @@ import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
 
+import gov.cdc.foundation.admission.MemoryEstimator;
+import gov.cdc.foundation.helper.AsyncFluentLogger;
+import gov.cdc.foundation.xlsx.RangeReference;
+import gov.cdc.foundation.xlsx.RowSelection;
+import gov.cdc.foundation.xlsx.SharedStringsStore;
+import gov.cdc.foundation.xlsx.SheetEventListener;
+import gov.cdc.foundation.xlsx.WorkbookCache;
+import gov.cdc.foundation.xlsx.WorkbookHandle;
+import gov.cdc.foundation.xlsx.XLSXStreamingReader;
+
 @RunWith(SpringRunner.class)
 @SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
 		"logging.fluentd.host=fluentd", 
@@ -37,7 +70,11 @@ import com.google.gson.JsonParser;
 		"security.oauth2.protected=",
 		"security.oauth2.client.client-id=",
 		"security.oauth2.client.client-secret=",
-		"ssl.verifying.disable=false" })
+		"ssl.verifying.disable=false",
+		"xlsx.csv.chunk-size=16",
+		"upload.spool-threshold=16384",
+		"xlsx.shared-strings.heap-limit=16",
+		"admission.budget=8388608" })
 @AutoConfigureMockMvc
 public class MicrosoftApplicationTests {
 
@@ -45,6 +82,8 @@ public class MicrosoftApplicationTests {
 	private TestRestTemplate restTemplate;
 	@Autowired
 	private MockMvc mvc;
+	@Autowired
+	private WorkbookCache workbookCache;
 	private String baseUrlPath = "/api/1.0/";
 
 	@Test
@@ -71,6 +110,15 @@ public class MicrosoftApplicationTests {
 		assertTrue(json.getAsJsonObject().get("items").getAsJsonArray().get(0).getAsJsonObject().get("name").getAsString().equals("Sheet1"));
 	}
 
+	@Test
+	public void getSheetsWithDimensions() throws Exception {
+		MockMultipartFile file = new MockMultipartFile("file", "sample.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", getResourceAsByte("/junit/sample.xlsx"));
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/sheets?dimensions=true");
+		MvcResult result = mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("items").getAsJsonArray().get(0).getAsJsonObject().get("dimension").getAsString().equals("A1:C2"));
+	}
+
 	@Test
 	public void extractXlsxToCsv() throws Exception {
 		MockMultipartFile file = new MockMultipartFile("file", "sample.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", getResourceAsByte("/junit/sample.xlsx"));
@@ -91,6 +139,452 @@ public class MicrosoftApplicationTests {
 		assertTrue(json.getAsJsonObject().get("cols").getAsInt() == 3);
 	}
 
+	@Test
+	public void extractXlsxToJsonLandscape() throws Exception {
+		MockMultipartFile file = new MockMultipartFile("file", "sample.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", getResourceAsByte("/junit/sample.xlsx"));
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/json?sheetRange=A1:A2&orientation=landscape");
+		MvcResult result = mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("rows").getAsInt() == 2);
+		assertTrue(json.getAsJsonObject().get("cols").getAsInt() == 3);
+		assertTrue(json.getAsJsonObject().get("items").getAsJsonArray().get(1).getAsJsonArray().get(2).getAsString().equals("C2"));
+	}
+
+	@Test
+	public void extractXlsxToJsonLandscapeRagged() throws Exception {
+		// The rows end in different columns and the column E is blank in all of them
+		MockMultipartFile xlsx = toXlsx("a1,b1,c1,d1,,f1\na2,b2\na3,,c3\n");
+		String[][][] expected = {
+			{ { "a1", "b1", "c1", "d1" }, { "a2", "b2", "", "" }, { "a3", "", "c3", "" } },
+			{ { "b1", "c1", "d1" }, { "b2", "", "" }, { "", "c3", "" } },
+			// Without the first row, D is the first blank column
+			{ { "a2", "b2", "" }, { "a3", "", "c3" } }
+		};
+		String[] ranges = { "A1:A3", "B1:B3", "A2:A3" };
+
+		for (int i = 0; i < ranges.length; i++) {
+			MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/json?orientation=landscape&sheetRange=" + ranges[i]);
+			MvcResult result = mvc.perform(builder.file(xlsx)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+			JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+			assertTrue(json.getAsJsonObject().get("rows").getAsInt() == expected[i].length);
+			assertTrue(json.getAsJsonObject().get("cols").getAsInt() == expected[i][0].length);
+			for (int r = 0; r < expected[i].length; r++) {
+				JsonElement row = json.getAsJsonObject().get("items").getAsJsonArray().get(r);
+				assertTrue(row.getAsJsonArray().size() == expected[i][r].length);
+				for (int c = 0; c < expected[i][r].length; c++)
+					assertThat(row.getAsJsonArray().get(c).getAsString()).isEqualTo(expected[i][r][c]);
+			}
+		}
+	}
+
+	@Test
+	public void extractXlsxToJsonColumns() throws Exception {
+		MockMultipartFile file = new MockMultipartFile("file", "sample.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", getResourceAsByte("/junit/sample.xlsx"));
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/json?sheetRange=A:C");
+		MvcResult result = mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("rows").getAsInt() == 2);
+		assertTrue(json.getAsJsonObject().get("cols").getAsInt() == 3);
+
+		builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/json?sheetRange=Sheet1!A1:A1,C1:C1");
+		result = mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("rows").getAsInt() == 4);
+		assertTrue(json.getAsJsonObject().get("items").getAsJsonArray().get(3).getAsJsonArray().get(0).getAsString().equals("C2"));
+	}
+
+	@Test
+	public void extractXlsxBatch() throws Exception {
+		MockMultipartFile file = new MockMultipartFile("file", "sample.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", getResourceAsByte("/junit/sample.xlsx"));
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/batch");
+		builder.param("specs", "[{\"sheetName\": \"Sheet1\", \"sheetRange\": \"A1:C1\"}, {\"sheetRange\": \"A1:A2\", \"orientation\": \"landscape\"}]");
+		MvcResult result = mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("total").getAsInt() == 2);
+		assertTrue(json.getAsJsonObject().get("items").getAsJsonArray().get(1).getAsJsonObject().get("rows").getAsInt() == 2);
+	}
+
+	@Test
+	public void extractXlsxBatchManyRows() throws Exception {
+		StringBuilder csv = new StringBuilder();
+		for (int i = 1; i <= 2000; i++)
+			csv.append("a").append(i).append(",b").append(i).append('\n');
+		MockMultipartFile xlsx = toXlsx(csv.toString());
+
+		// More rows than the queue of an extraction, so both extractions wait for the writer
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/batch");
+		builder.param("specs", "[{\"sheetRange\": \"A1:A1\"}, {\"sheetRange\": \"B1:B1\"}, {\"sheetRange\": \"A1:B1\"}]");
+		MvcResult result = mvc.perform(builder.file(xlsx)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("total").getAsInt() == 3);
+		for (int i = 0; i < 3; i++) {
+			JsonElement item = json.getAsJsonObject().get("items").getAsJsonArray().get(i);
+			assertTrue(item.getAsJsonObject().get("rows").getAsInt() == 2000);
+			assertThat(item.getAsJsonObject().get("items").getAsJsonArray().get(1999).getAsJsonArray().get(0).getAsString()).isEqualTo(i == 1 ? "b2000" : "a2000");
+		}
+
+		builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/batch?format=csv");
+		builder.param("specs", "[{\"sheetRange\": \"A1:A1\"}, {\"sheetRange\": \"B1:B1\"}]");
+		mvc.perform(builder.file(xlsx)).andExpect(MockMvcResultMatchers.status().isOk());
+	}
+
+	@Test
+	public void workbookCache() throws Exception {
+		MockMultipartFile file = new MockMultipartFile("file", "sample.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", getResourceAsByte("/junit/sample.xlsx"));
+		// The snapshots are kept for the columns of a range, so the same range is read twice
+		for (String range : new String[] { "A1:C1", "A1:C1" }) {
+			MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/json?sheetRange=" + range);
+			mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isOk());
+		}
+		MvcResult result = mvc.perform(MockMvcRequestBuilders.get(baseUrlPath + "/xlsx/cache")).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("sheets").getAsJsonObject().get("hits").getAsInt() >= 1);
+	}
+
+	@Test
+	public void workbookCachePartialSnapshot() throws Exception {
+		StringBuilder csv = new StringBuilder();
+		for (int i = 1; i <= 3000; i++)
+			csv.append("r").append(i).append('\n');
+		MockMultipartFile xlsx = toXlsx(csv.toString());
+
+		// The first extraction stops after 5 rows, so only these rows are cached
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/json?sheetRange=A1:A1&limit=5");
+		MvcResult result = mvc.perform(builder.file(xlsx)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("rows").getAsInt() == 5);
+
+		// The next one replays them and reads the other rows from the file
+		builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/json?sheetRange=A1:A1");
+		result = mvc.perform(builder.file(xlsx)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("rows").getAsInt() == 3000);
+		for (int i : new int[] { 0, 4, 5, 2999 })
+			assertTrue(json.getAsJsonObject().get("items").getAsJsonArray().get(i).getAsJsonArray().get(0).getAsString().equals("r" + (i + 1)));
+	}
+
+	@Test
+	public void workbookCacheFormatsOnlyTheReadCells() throws Exception {
+		MockMultipartFile xlsx = toSharedStringsXlsx(30, 80);
+		try (WorkbookHandle wb = workbookCache.open(new ByteArrayResource(xlsx.getBytes()))) {
+			// The header is read entirely, then only the 3 selected columns of the next 29 rows
+			List<String[]> rows = new ArrayList<>();
+			RowSelection selection = RowSelection.parse(sharedString(1) + "," + sharedString(2) + "," + sharedString(3), null, 0, 0);
+			wb.extract("Sheet1", RangeReference.parse("A1:CB1", "portrait"), selection, rows::add);
+			assertThat(rows.get(rows.size() - 1)).isEqualTo(new String[] { sharedString(29 * 80 + 1), sharedString(29 * 80 + 2), sharedString(29 * 80 + 3) });
+			assertTrue(wb.getFormattedCells() == 80 + 29 * 3);
+
+			// The 2 columns of the range, then nothing as the second extraction replays the snapshot
+			for (int i = 0; i < 2; i++) {
+				rows.clear();
+				wb.extract("Sheet1", RangeReference.parse("B2:C2", "portrait"), rows::add);
+				assertTrue(rows.size() == 29);
+				assertThat(rows.get(28)).isEqualTo(new String[] { sharedString(29 * 80 + 1), sharedString(29 * 80 + 2) });
+				assertTrue(wb.getFormattedCells() == 80 + 29 * 3 + 29 * 2);
+			}
+		}
+	}
+
+	@Test
+	public void storedDocument() throws Exception {
+		MockMultipartFile file = new MockMultipartFile("file", "sample.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", getResourceAsByte("/junit/sample.xlsx"));
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/documents");
+		MvcResult result = mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isCreated()).andReturn();
+		String id = new JsonParser().parse(result.getResponse().getContentAsString()).getAsJsonObject().get("id").getAsString();
+
+		result = mvc.perform(MockMvcRequestBuilders.get(baseUrlPath + "/xlsx/documents/" + id + "/sheets")).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("total").getAsInt() == 1);
+
+		result = mvc.perform(MockMvcRequestBuilders.get(baseUrlPath + "/xlsx/documents/" + id + "/extract/json?sheetRange=A1:C1")).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("rows").getAsInt() == 2);
+
+		mvc.perform(MockMvcRequestBuilders.delete(baseUrlPath + "/xlsx/documents/" + id)).andExpect(MockMvcResultMatchers.status().isOk());
+	}
+
+	@Test
+	public void extractPages() throws Exception {
+		MockMultipartFile file = new MockMultipartFile("file", "sample.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", getResourceAsByte("/junit/sample.xlsx"));
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/json?sheetRange=A1:C1&offset=1&limit=1");
+		MvcResult result = mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("rows").getAsInt() == 1);
+		assertTrue(json.getAsJsonObject().get("items").getAsJsonArray().get(0).getAsJsonArray().get(0).getAsString().equals("A2"));
+
+		// Enough rows for the stored document to be read from an indexed row
+		StringBuilder csv = new StringBuilder();
+		for (int i = 1; i <= 3000; i++)
+			csv.append("r").append(i).append('\n');
+		MockMultipartFile csvFile = new MockMultipartFile("file", "sample.csv", "text/csv", csv.toString().getBytes(StandardCharsets.UTF_8));
+		result = mvc.perform(MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/from/csv").file(csvFile)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		MockMultipartFile xlsx = new MockMultipartFile("file", "sample.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", result.getResponse().getContentAsByteArray());
+		result = mvc.perform(MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/documents").file(xlsx)).andExpect(MockMvcResultMatchers.status().isCreated()).andReturn();
+		String id = new JsonParser().parse(result.getResponse().getContentAsString()).getAsJsonObject().get("id").getAsString();
+
+		for (int offset : new int[] { 2500, 0, 2995 }) {
+			result = mvc.perform(MockMvcRequestBuilders.get(baseUrlPath + "/xlsx/documents/" + id + "/extract/json?sheetRange=A1:A1&limit=10&offset=" + offset)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+			json = new JsonParser().parse(result.getResponse().getContentAsString());
+			assertTrue(json.getAsJsonObject().get("rows").getAsInt() == Math.min(10, 3000 - offset));
+			assertTrue(json.getAsJsonObject().get("items").getAsJsonArray().get(0).getAsJsonArray().get(0).getAsString().equals("r" + (offset + 1)));
+		}
+
+		mvc.perform(MockMvcRequestBuilders.delete(baseUrlPath + "/xlsx/documents/" + id)).andExpect(MockMvcResultMatchers.status().isOk());
+	}
+
+	@Test
+	public void extractPagesStopAtEmptyRow() throws Exception {
+		// The row 2100 is empty, after the second indexed row of the stored document
+		StringBuilder csv = new StringBuilder();
+		for (int i = 1; i <= 3000; i++)
+			csv.append(i == 2100 ? "" : "r" + i).append('\n');
+		MockMultipartFile xlsx = toXlsx(csv.toString());
+		MvcResult result = mvc.perform(MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/json?sheetRange=A1:A1").file(xlsx)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		List<String> expected = firstColumn(result);
+		assertTrue(expected.size() == 2099);
+
+		result = mvc.perform(MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/documents").file(xlsx)).andExpect(MockMvcResultMatchers.status().isCreated()).andReturn();
+		String id = new JsonParser().parse(result.getResponse().getContentAsString()).getAsJsonObject().get("id").getAsString();
+
+		// A page past the empty row is empty, even before the rows in front of it have been read
+		result = mvc.perform(MockMvcRequestBuilders.get(baseUrlPath + "/xlsx/documents/" + id + "/extract/json?sheetRange=A1:A1&offset=2500&limit=100")).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		assertTrue(firstColumn(result).isEmpty());
+		result = mvc.perform(MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/json?sheetRange=A1:A1&offset=2500&limit=100").file(xlsx)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		assertTrue(firstColumn(result).isEmpty());
+
+		// The pages put together give the whole extraction
+		List<String> uploaded = new ArrayList<>();
+		List<String> stored = new ArrayList<>();
+		for (int offset = 0; offset < 3000; offset += 400) {
+			result = mvc.perform(MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/json?sheetRange=A1:A1&limit=400&offset=" + offset).file(xlsx)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+			uploaded.addAll(firstColumn(result));
+			result = mvc.perform(MockMvcRequestBuilders.get(baseUrlPath + "/xlsx/documents/" + id + "/extract/json?sheetRange=A1:A1&limit=400&offset=" + offset)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+			stored.addAll(firstColumn(result));
+		}
+		assertThat(uploaded).isEqualTo(expected);
+		assertThat(stored).isEqualTo(expected);
+
+		mvc.perform(MockMvcRequestBuilders.delete(baseUrlPath + "/xlsx/documents/" + id)).andExpect(MockMvcResultMatchers.status().isOk());
+	}
+
+	@Test
+	public void convertCsvToXlsx() throws Exception {
+		MockMultipartFile file = new MockMultipartFile("file", "sample.csv", "text/csv", "A1,B1,C1\nA2,B2,C2\n".getBytes());
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/from/csv");
+		MvcResult result = mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		byte[] content = result.getResponse().getContentAsByteArray();
+		assertTrue(content.length > 2 && content[0] == 'P' && content[1] == 'K');
+	}
+
+	@Test
+	public void convertCsvToXlsxInChunks() throws Exception {
+		// Quoted line breaks and several 16 characters chunks
+		String csv = "name,city\r\n\"D\u00e9j\u00e0\nvu\",\"Paris, France\"\r\nB,\"\"\"quoted\"\"\"\r\nC,Lyon\r\n";
+		MockMultipartFile file = new MockMultipartFile("file", "sample.csv", "text/csv", csv.getBytes(StandardCharsets.ISO_8859_1));
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/from/csv?charset=ISO-8859-1");
+		MvcResult result = mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+
+		MockMultipartFile xlsx = new MockMultipartFile("file", "sample.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", result.getResponse().getContentAsByteArray());
+		builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/json?sheetRange=A:B");
+		result = mvc.perform(builder.file(xlsx)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("rows").getAsInt() == 4);
+		assertTrue(json.getAsJsonObject().get("items").getAsJsonArray().get(1).getAsJsonArray().get(0).getAsString().equals("D\u00e9j\u00e0\nvu"));
+		assertTrue(json.getAsJsonObject().get("items").getAsJsonArray().get(2).getAsJsonArray().get(1).getAsString().equals("\"quoted\""));
+		assertTrue(json.getAsJsonObject().get("items").getAsJsonArray().get(3).getAsJsonArray().get(1).getAsString().equals("Lyon"));
+	}
+
+	@Test
+	public void convertCsvToXlsxWithTypes() throws Exception {
+		String csv = "id,amount,active,date,zip\n1,12.5,true,2019-01-31,01234\n2,7,false,2019-02-01,75001\n";
+		MockMultipartFile file = new MockMultipartFile("file", "sample.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/from/csv?inferTypes=true");
+		MvcResult result = mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+
+		MockMultipartFile xlsx = new MockMultipartFile("file", "sample.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", result.getResponse().getContentAsByteArray());
+		builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/json?sheetRange=A:E&dateFormat=iso");
+		result = mvc.perform(builder.file(xlsx)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		JsonElement header = json.getAsJsonObject().get("items").getAsJsonArray().get(0);
+		JsonElement row = json.getAsJsonObject().get("items").getAsJsonArray().get(1);
+		assertTrue(header.getAsJsonArray().get(1).getAsString().equals("amount"));
+		assertTrue(row.getAsJsonArray().get(0).getAsString().equals("1.0"));
+		assertTrue(row.getAsJsonArray().get(1).getAsString().equals("12.5"));
+		assertTrue(row.getAsJsonArray().get(2).getAsString().equals("true"));
+		assertTrue(row.getAsJsonArray().get(3).getAsString().equals("2019-01-31"));
+		// Leading zeros are kept
+		assertTrue(row.getAsJsonArray().get(4).getAsString().equals("01234"));
+	}
+
+	@Test
+	public void extractXlsxDates() throws Exception {
+		// The date styles are shared by the rows, and `serial` is a number close to the dates without a date style
+		MockMultipartFile xlsx = toXlsx("amount,serial,day,time\n12.5,43496,2019-01-31,2019-01-31T09:30:00\n7,43497,2019-02-01,2019-02-01T08:15:00\n3,43498,2019-02-02,2019-02-02T09:00:00\n");
+		String[][] excel = {
+			{ "12.5", "43496.0", "2019-01-31", "2019-01-31 09:30:00" },
+			{ "7.0", "43497.0", "2019-02-01", "2019-02-01 08:15:00" },
+			{ "3.0", "43498.0", "2019-02-02", "2019-02-02 09:00:00" }
+		};
+		String[][] iso = {
+			{ "12.5", "43496.0", "2019-01-31", "2019-01-31T09:30" },
+			{ "7.0", "43497.0", "2019-02-01", "2019-02-01T08:15" },
+			{ "3.0", "43498.0", "2019-02-02", "2019-02-02T09:00" }
+		};
+
+		for (String dateFormat : new String[] { "excel", "iso" }) {
+			String[][] expected = "iso".equals(dateFormat) ? iso : excel;
+			MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/json?sheetRange=A:D&dateFormat=" + dateFormat);
+			MvcResult result = mvc.perform(builder.file(xlsx)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+			JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+			assertTrue(json.getAsJsonObject().get("rows").getAsInt() == 4);
+			for (int r = 0; r < expected.length; r++)
+				for (int c = 0; c < expected[r].length; c++)
+					assertThat(json.getAsJsonObject().get("items").getAsJsonArray().get(r + 1).getAsJsonArray().get(c).getAsString()).isEqualTo(expected[r][c]);
+		}
+
+		// Without a date format, the number format of the cells is used
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/csv?sheetRange=C2:D2");
+		MvcResult result = mvc.perform(builder.file(xlsx)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		String[] lines = result.getResponse().getContentAsString().split("\n");
+		assertThat(lines[0]).isEqualTo("\"2019-01-31\",\"2019-01-31 09:30:00\"");
+		assertThat(lines[2]).isEqualTo("\"2019-02-02\",\"2019-02-02 09:00:00\"");
+	}
+
+	@Test
+	public void extractXlsxWithSelection() throws Exception {
+		String csv = "name,amount,city\nAnn,12.5,Atlanta\nBob,7,Atlanta\nCid,30,Boston\nDan,40,Savannah\n";
+		MockMultipartFile file = new MockMultipartFile("file", "sample.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/from/csv?inferTypes=true");
+		MvcResult result = mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+
+		MockMultipartFile xlsx = new MockMultipartFile("file", "sample.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", result.getResponse().getContentAsByteArray());
+		builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/json?sheetRange=A:C&columns=C,name");
+		builder.param("filter", "amount:gt:10", "city:contains:AN");
+		result = mvc.perform(builder.file(xlsx)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		// The header is kept, Bob and Cid are filtered out
+		assertTrue(json.getAsJsonObject().get("rows").getAsInt() == 3);
+		assertTrue(json.getAsJsonObject().get("cols").getAsInt() == 2);
+		JsonElement items = json.getAsJsonObject().get("items");
+		assertTrue(items.getAsJsonArray().get(0).getAsJsonArray().get(0).getAsString().equals("city"));
+		assertTrue(items.getAsJsonArray().get(1).getAsJsonArray().get(1).getAsString().equals("Ann"));
+		assertTrue(items.getAsJsonArray().get(2).getAsJsonArray().get(0).getAsString().equals("Savannah"));
+	}
+
+	@Test
+	public void extractXlsxWithSelectionAndGaps() throws Exception {
+		// The name of the third row is missing and the fifth row is empty, so the extraction ends before Eve
+		MockMultipartFile xlsx = toXlsx("name,amount,city\nAnn,1,Atlanta\n,2,Boston\nCid,3,Chicago\n\nEve,5,Erie\n");
+		String[][] queries = { { "columns=name" }, { "columns=name", "filter=city:ne:Boston" }, { "filter=amount:ge:2" } };
+		String[][] expected = { { "name", "Ann", "", "Cid" }, { "name", "Ann", "Cid" }, { "name", "", "Cid" } };
+
+		for (int i = 0; i < queries.length; i++) {
+			MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/json?sheetRange=A:C&" + String.join("&", queries[i]));
+			MvcResult result = mvc.perform(builder.file(xlsx)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+			JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+			assertTrue(json.getAsJsonObject().get("rows").getAsInt() == expected[i].length);
+			for (int r = 0; r < expected[i].length; r++)
+				assertThat(json.getAsJsonObject().get("items").getAsJsonArray().get(r).getAsJsonArray().get(0).getAsString()).isEqualTo(expected[i][r]);
+		}
+
+		// The same rows as without a selection
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/json?sheetRange=A:C");
+		MvcResult result = mvc.perform(builder.file(xlsx)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("rows").getAsInt() == 4);
+	}
+
+	@Test
+	public void sharedStringsHeapAndMapped() throws Exception {
+		MockMultipartFile xlsx = toSharedStringsXlsx(200, 50);
+		Set<String> tempFiles = listStringsTempFiles();
+
+		OPCPackage pkg = OPCPackage.open(xlsx.getInputStream());
+		try (SharedStringsStore heap = SharedStringsStore.read(pkg, Long.MAX_VALUE);
+				SharedStringsStore mapped = SharedStringsStore.read(pkg, 0);
+				SharedStringsStore spilled = SharedStringsStore.read(pkg, 65536);
+				// 4 KB segments, so that many records end next to a segment boundary
+				SharedStringsStore segmented = SharedStringsStore.read(pkg, 0, 12)) {
+			assertTrue(!heap.isMapped());
+			assertTrue(mapped.isMapped() && spilled.isMapped() && segmented.isMapped());
+			assertTrue(heap.size() > 9000);
+			for (SharedStringsStore store : new SharedStringsStore[] { mapped, spilled, segmented }) {
+				assertTrue(store.size() == heap.size());
+				for (int i = 0; i < heap.size(); i++) {
+					assertThat(store.getEntryAt(i)).isEqualTo(heap.getEntryAt(i));
+					assertTrue(store.isEmptyAt(i) == heap.getEntryAt(i).isEmpty());
+				}
+			}
+			// The mapped files are deleted as soon as they are mapped
+			assertThat(listStringsTempFiles()).isEqualTo(tempFiles);
+		} finally {
+			pkg.revert();
+		}
+		assertThat(listStringsTempFiles()).isEqualTo(tempFiles);
+
+		// The same cells from the heap and from the mapped files
+		File file = File.createTempFile("strings", ".xlsx");
+		try {
+			FileUtils.writeByteArrayToFile(file, xlsx.getBytes());
+			List<String> fromHeap = readCells(file, Long.MAX_VALUE);
+			assertThat(readCells(file, 0)).isEqualTo(fromHeap);
+			assertTrue(fromHeap.size() == 200 * 50);
+			for (int i = 0; i < fromHeap.size(); i++)
+				assertThat(fromHeap.get(i)).isEqualTo(sharedString(i));
+		} finally {
+			FileUtils.deleteQuietly(file);
+		}
+
+		// The tests run with a heap limit of 16 bytes, so the extraction goes through the mapped files
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/json?sheetRange=A1:AX1");
+		MvcResult result = mvc.perform(builder.file(xlsx)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("rows").getAsInt() == 200);
+		for (int r = 0; r < 200; r++)
+			for (int c = 0; c < 50; c++)
+				assertThat(json.getAsJsonObject().get("items").getAsJsonArray().get(r).getAsJsonArray().get(c).getAsString()).isEqualTo(sharedString(r * 50 + c));
+		assertThat(listStringsTempFiles()).isEqualTo(tempFiles);
+	}
+
+	@Test
+	public void sharedStringsHeapLimitWithShortStrings() throws Exception {
+		// 20000 strings of 1 character: 140 KB of records, but 160 KB of offsets
+		SXSSFWorkbook wb = new SXSSFWorkbook(null, 100, false, true);
+		byte[] bytes;
+		try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
+			Sheet sheet = wb.createSheet("Sheet1");
+			for (int r = 0; r < 200; r++) {
+				Row row = sheet.createRow(r);
+				for (int c = 0; c < 100; c++)
+					row.createCell(c).setCellValue(String.valueOf((char) (0x4e00 + r * 100 + c)));
+			}
+			wb.write(os);
+			bytes = os.toByteArray();
+		} finally {
+			wb.dispose();
+			wb.close();
+		}
+
+		OPCPackage pkg = OPCPackage.open(new ByteArrayInputStream(bytes));
+		try (SharedStringsStore unlimited = SharedStringsStore.read(pkg, Long.MAX_VALUE)) {
+			assertTrue(unlimited.size() == 20000);
+			assertTrue(unlimited.getHeapSize() > 160000);
+			assertTrue(MemoryEstimator.estimate(new ByteArrayResource(bytes), false, Long.MAX_VALUE) >= unlimited.getHeapSize());
+			for (long limit : new long[] { 65536, 262144, 1048576 }) {
+				try (SharedStringsStore store = SharedStringsStore.read(pkg, limit)) {
+					// The records alone would fit in 256 KB, not with their offsets
+					assertTrue(store.isMapped() == limit < 1048576);
+					assertTrue(store.getHeapSize() <= limit);
+					assertTrue(MemoryEstimator.estimate(new ByteArrayResource(bytes), false, limit) >= store.getHeapSize());
+					for (int i = 0; i < store.size(); i++)
+						assertThat(store.getEntryAt(i)).isEqualTo(unlimited.getEntryAt(i));
+				}
+			}
+		} finally {
+			pkg.revert();
+		}
+	}
+
 	@Test
 	public void extractDocToTxt() throws Exception {
 		MockMultipartFile file = new MockMultipartFile("file", "sample.docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document", getResourceAsByte("/junit/sample.docx"));
@@ -99,6 +593,324 @@ public class MicrosoftApplicationTests {
 		assertTrue(result.getResponse().getContentAsString().contains("Hello World!"));
 	}
 
+	@Test
+	public void extractDocxToJson() throws Exception {
+		MockMultipartFile file = new MockMultipartFile("file", "sample.docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document", getResourceAsByte("/junit/sample.docx"));
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/docx/extract/json");
+		MvcResult result = mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		JsonElement first = json.getAsJsonObject().get("body").getAsJsonArray().get(0);
+		assertTrue(first.getAsJsonObject().get("type").getAsString().equals("paragraph"));
+		assertTrue(first.getAsJsonObject().get("text").getAsString().equals("Hello World!"));
+	}
+
+	@Test
+	public void extractDocxToTxtWithOptions() throws Exception {
+		MockMultipartFile file = toDocx();
+		String[] queries = { "", "?tables=false", "?headers=false", "?footers=false" };
+		for (String query : queries) {
+			MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/docx/extract" + query);
+			MvcResult result = mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+			String text = result.getResponse().getContentAsString();
+			assertTrue(text.contains("Before the table\n"));
+			assertTrue(text.contains("After the table\n"));
+			assertTrue(text.contains("t11\tt12\nt21\tt22\n") == !query.contains("tables"));
+			assertTrue(text.contains("Page header") == !query.contains("headers"));
+			assertTrue(text.contains("Page footer") == !query.contains("footers"));
+		}
+
+		// The headers come first and the footers last
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/docx/extract");
+		String text = mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn().getResponse().getContentAsString();
+		assertTrue(text.indexOf("Page header") < text.indexOf("Before the table"));
+		assertTrue(text.indexOf("t22") < text.indexOf("After the table"));
+		assertTrue(text.indexOf("After the table") < text.indexOf("Page footer"));
+	}
+
+	@Test
+	public void extractDocxToJsonWithOptions() throws Exception {
+		MockMultipartFile file = toDocx();
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/docx/extract/json?headers=true&footers=true");
+		MvcResult result = mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("headers").getAsJsonArray().get(0).getAsJsonObject().get("text").getAsString().equals("Page header"));
+		assertTrue(json.getAsJsonObject().get("footers").getAsJsonArray().get(0).getAsJsonObject().get("text").getAsString().equals("Page footer"));
+		JsonElement table = json.getAsJsonObject().get("body").getAsJsonArray().get(1);
+		assertTrue(table.getAsJsonObject().get("type").getAsString().equals("table"));
+		assertTrue(table.getAsJsonObject().get("rows").getAsJsonArray().get(1).getAsJsonArray().get(0).getAsString().equals("t21"));
+
+		// Only the tables, and no header or footer by default
+		builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/docx/extract/json?parts=tables");
+		result = mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(!json.getAsJsonObject().has("headers"));
+		assertTrue(!json.getAsJsonObject().has("footers"));
+		assertTrue(json.getAsJsonObject().get("body").getAsJsonArray().size() == 1);
+		assertTrue(json.getAsJsonObject().get("body").getAsJsonArray().get(0).getAsJsonObject().get("type").getAsString().equals("table"));
+	}
+
+	@Test
+	public void previewXlsx() throws Exception {
+		MockMultipartFile file = new MockMultipartFile("file", "sample.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", getResourceAsByte("/junit/sample.xlsx"));
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/preview?rows=1");
+		MvcResult result = mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("rows").getAsInt() == 1);
+		assertTrue(json.getAsJsonObject().get("range").getAsString().equals("A1:C1"));
+		assertTrue(json.getAsJsonObject().get("items").getAsJsonArray().get(0).getAsJsonArray().get(2).getAsString().equals("C1"));
+
+		builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/preview");
+		result = mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("rows").getAsInt() == 2);
+		assertTrue(json.getAsJsonObject().get("range").getAsString().equals("A1:C2"));
+	}
+
+	@Test
+	public void previewXlsxWithoutHash() throws Exception {
+		// Without a hash the workbook has no cache key, so the preview never looks the cache up
+		String before = mvc.perform(MockMvcRequestBuilders.get(baseUrlPath + "/xlsx/cache")).andExpect(MockMvcResultMatchers.status().isOk()).andReturn().getResponse().getContentAsString();
+		MockMultipartFile file = toSharedStringsXlsx(10, 10);
+		mvc.perform(MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/preview").file(file)).andExpect(MockMvcResultMatchers.status().isOk());
+		String after = mvc.perform(MockMvcRequestBuilders.get(baseUrlPath + "/xlsx/cache")).andExpect(MockMvcResultMatchers.status().isOk()).andReturn().getResponse().getContentAsString();
+
+		for (String cache : new String[] { "workbooks", "sheets" })
+			for (String stat : new String[] { "hits", "misses", "size" })
+				assertThat(new JsonParser().parse(after).getAsJsonObject().get(cache).getAsJsonObject().get(stat).getAsLong())
+						.isEqualTo(new JsonParser().parse(before).getAsJsonObject().get(cache).getAsJsonObject().get(stat).getAsLong());
+	}
+
+	@Test
+	public void previewDocx() throws Exception {
+		MockMultipartFile file = new MockMultipartFile("file", "sample.docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document", getResourceAsByte("/junit/sample.docx"));
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/docx/preview?paragraphs=1");
+		MvcResult result = mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("total").getAsInt() == 1);
+		assertTrue(json.getAsJsonObject().get("items").getAsJsonArray().get(0).getAsJsonObject().get("text").getAsString().equals("Hello World!"));
+	}
+
+	@Test
+	public void asyncJob() throws Exception {
+		MockMultipartFile file = new MockMultipartFile("file", "sample.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", getResourceAsByte("/junit/sample.xlsx"));
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/json?sheetRange=A1:C1&async=true");
+		MvcResult result = mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isAccepted()).andReturn();
+		String id = new JsonParser().parse(result.getResponse().getContentAsString()).getAsJsonObject().get("id").getAsString();
+
+		String status = null;
+		for (int i = 0; i < 50 && !"succeeded".equals(status); i++) {
+			Thread.sleep(100);
+			result = mvc.perform(MockMvcRequestBuilders.get(baseUrlPath + "/jobs/" + id)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+			status = new JsonParser().parse(result.getResponse().getContentAsString()).getAsJsonObject().get("status").getAsString();
+		}
+		assertTrue("succeeded".equals(status));
+
+		result = mvc.perform(MockMvcRequestBuilders.get(baseUrlPath + "/jobs/" + id + "/result")).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("rows").getAsInt() == 2);
+	}
+
+	@Test
+	public void admissionStats() throws Exception {
+		MockMultipartFile file = new MockMultipartFile("file", "sample.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", getResourceAsByte("/junit/sample.xlsx"));
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/json?sheetRange=A1:C1");
+		mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isOk());
+
+		MvcResult result = mvc.perform(MockMvcRequestBuilders.get(baseUrlPath + "/admission")).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("admitted").getAsInt() >= 1);
+		assertTrue(json.getAsJsonObject().get("used").getAsLong() == 0);
+	}
+
+	@Test
+	public void admissionOfPreviews() throws Exception {
+		MvcResult result = mvc.perform(MockMvcRequestBuilders.get(baseUrlPath + "/admission")).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		long admitted = new JsonParser().parse(result.getResponse().getContentAsString()).getAsJsonObject().get("admitted").getAsLong();
+
+		MockMultipartFile xlsx = new MockMultipartFile("file", "sample.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", getResourceAsByte("/junit/sample.xlsx"));
+		MockMultipartFile docx = new MockMultipartFile("file", "sample.docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document", getResourceAsByte("/junit/sample.docx"));
+		mvc.perform(MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/sheets").file(xlsx)).andExpect(MockMvcResultMatchers.status().isOk());
+		mvc.perform(MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/preview").file(xlsx)).andExpect(MockMvcResultMatchers.status().isOk());
+		mvc.perform(MockMvcRequestBuilders.fileUpload(baseUrlPath + "/docx/preview").file(docx)).andExpect(MockMvcResultMatchers.status().isOk());
+
+		result = mvc.perform(MockMvcRequestBuilders.get(baseUrlPath + "/admission")).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("admitted").getAsLong() >= admitted + 3);
+		assertTrue(json.getAsJsonObject().get("used").getAsLong() == 0);
+	}
+
+	@Test
+	public void admissionOfLargeSharedStrings() throws Exception {
+		MockMultipartFile xlsx = toSharedStringsXlsx(1000, 200);
+		// Kept on the heap, the shared strings would need more than the budget of the tests
+		assertTrue(MemoryEstimator.estimate(xlsx, false, Long.MAX_VALUE) > 8388608);
+
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/json?sheetRange=A1:C1&limit=2");
+		MvcResult result = mvc.perform(builder.file(xlsx)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		assertTrue(json.getAsJsonObject().get("rows").getAsInt() == 2);
+		assertThat(json.getAsJsonObject().get("items").getAsJsonArray().get(1).getAsJsonArray().get(2).getAsString()).isEqualTo(sharedString(202));
+	}
+
+	@Test
+	public void prometheusMetrics() throws Exception {
+		MockMultipartFile file = new MockMultipartFile("file", "sample.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", getResourceAsByte("/junit/sample.xlsx"));
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/extract/csv?sheetRange=A1:C2");
+		mvc.perform(builder.file(file)).andExpect(MockMvcResultMatchers.status().isOk());
+
+		MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus")).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		String metrics = result.getResponse().getContentAsString();
+		assertTrue(metrics.contains("msft_conversion_stage_seconds_count{"));
+		assertTrue(metrics.contains("stage=\"extract\""));
+		assertTrue(metrics.contains("msft_conversion_rows_total{"));
+	}
+
+	@Test
+	public void asyncFluentLogger() throws Exception {
+		try (ServerSocket server = new ServerSocket(0)) {
+			// Stand-in for Fluentd, keeps everything it receives
+			ByteArrayOutputStream received = new ByteArrayOutputStream();
+			Thread listener = new Thread(() -> {
+				try (Socket socket = server.accept()) {
+					IOUtils.copy(socket.getInputStream(), received);
+				} catch (IOException e) {
+					// Checked by the assertions below
+				}
+			});
+			listener.start();
+
+			AsyncFluentLogger fluent = new AsyncFluentLogger("junit", "localhost", server.getLocalPort(), 16, 4, 5);
+			Map<String, Object> data = new HashMap<>();
+			data.put("message", "hello");
+			for (int i = 0; i < 10; i++)
+				assertTrue(fluent.log("event", data));
+			fluent.close();
+			listener.join(5000);
+
+			assertTrue(fluent.getSent() == 10);
+			assertTrue(new String(received.toByteArray(), StandardCharsets.ISO_8859_1).contains("junit.event"));
+
+			// Closed, the next events are dropped
+			assertTrue(!fluent.log("event", data));
+			assertTrue(fluent.getDropped() == 1);
+		}
+	}
+
+	private MockMultipartFile toXlsx(String csv) throws Exception {
+		MockMultipartFile file = new MockMultipartFile("file", "sample.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+		MvcResult result = mvc.perform(MockMvcRequestBuilders.fileUpload(baseUrlPath + "/xlsx/from/csv?inferTypes=true").file(file)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		return new MockMultipartFile("file", "sample.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", result.getResponse().getContentAsByteArray());
+	}
+
+	private List<String> firstColumn(MvcResult result) throws Exception {
+		List<String> values = new ArrayList<>();
+		JsonElement json = new JsonParser().parse(result.getResponse().getContentAsString());
+		for (JsonElement row : json.getAsJsonObject().get("items").getAsJsonArray())
+			values.add(row.getAsJsonArray().get(0).getAsString());
+		return values;
+	}
+
+	/**
+	 * A workbook of `rows` rows and `cols` columns of distinct shared strings.
+	 */
+	private MockMultipartFile toSharedStringsXlsx(int rows, int cols) throws Exception {
+		SXSSFWorkbook wb = new SXSSFWorkbook(null, 100, false, true);
+		try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
+			Sheet sheet = wb.createSheet("Sheet1");
+			for (int r = 0; r < rows; r++) {
+				Row row = sheet.createRow(r);
+				for (int c = 0; c < cols; c++)
+					row.createCell(c).setCellValue(sharedString(r * cols + c));
+			}
+			wb.write(os);
+			return new MockMultipartFile("file", "strings.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", os.toByteArray());
+		} finally {
+			wb.dispose();
+			wb.close();
+		}
+	}
+
+	private List<String> readCells(File file, long stringsHeapLimit) throws Exception {
+		List<String> cells = new ArrayList<>();
+		try (XLSXStreamingReader reader = new XLSXStreamingReader(file, false, stringsHeapLimit)) {
+			reader.read("Sheet1", new SheetEventListener() {
+
+				@Override
+				public boolean startRow(int rowIndex) {
+					return true;
+				}
+
+				@Override
+				public boolean acceptCell(int columnIndex) {
+					return true;
+				}
+
+				@Override
+				public void cell(int columnIndex, String value) {
+					cells.add(value);
+				}
+
+				@Override
+				public void endRow(int rowIndex) {
+					// Nothing to do
+				}
+
+				@Override
+				public void endSheet() {
+					// Nothing to do
+				}
+
+			});
+		}
+		return cells;
+	}
+
+	private Set<String> listStringsTempFiles() {
+		Set<String> names = new HashSet<>();
+		for (String name : new File(System.getProperty("java.io.tmpdir")).list())
+			if (name.startsWith("fdns-msft-strings"))
+				names.add(name);
+		return names;
+	}
+
+	/**
+	 * Mostly short strings, with some empty, multi-byte and long ones.
+	 */
+	private static String sharedString(int i) {
+		if (i % 97 == 0)
+			return "";
+		if (i % 89 == 0)
+			return "D\u00e9j\u00e0 vu \u2713 " + i;
+		if (i % 83 == 0)
+			return new String(new char[i % 1000]).replace('\0', 'x') + i;
+		return String.format("shared string %06d", i);
+	}
+
+	/**
+	 * A document with a paragraph, a table, a paragraph, a header and a footer.
+	 */
+	private MockMultipartFile toDocx() throws Exception {
+		try (XWPFDocument doc = new XWPFDocument(); ByteArrayOutputStream os = new ByteArrayOutputStream()) {
+			doc.createParagraph().createRun().setText("Before the table");
+			XWPFTable table = doc.createTable(2, 2);
+			for (int r = 0; r < 2; r++)
+				for (int c = 0; c < 2; c++)
+					table.getRow(r).getCell(c).setText("t" + (r + 1) + (c + 1));
+			doc.createParagraph().createRun().setText("After the table");
+
+			XWPFHeaderFooterPolicy policy = new XWPFHeaderFooterPolicy(doc, doc.getDocument().getBody().addNewSectPr());
+			XWPFParagraph header = new XWPFParagraph(CTP.Factory.newInstance(), doc);
+			header.createRun().setText("Page header");
+			policy.createHeader(XWPFHeaderFooterPolicy.DEFAULT, new XWPFParagraph[] { header });
+			XWPFParagraph footer = new XWPFParagraph(CTP.Factory.newInstance(), doc);
+			footer.createRun().setText("Page footer");
+			policy.createFooter(XWPFHeaderFooterPolicy.DEFAULT, new XWPFParagraph[] { footer });
+
+			doc.write(os);
+			return new MockMultipartFile("file", "sample.docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document", os.toByteArray());
+		}
+	}
+
 	private InputStream getResource(String path) {
 		return MicrosoftApplicationTests.class.getResourceAsStream(path);
 	}